@@ -0,0 +1,52 @@
+package org.moyo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures candidate filtering and full solves for the challenge inputs listed in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChallengeSolveBenchmark {
+
+    @Param({
+            "4:aaccdeeeemmnnnoo",
+            "5:aaaeeeefhhmoonssrrrrttttw",
+            "5:aabbeeeeeeeehmosrrrruttvv",
+            "7:aaaaaaaaabbeeeeeeedddddggmmlloooonnssssrrrruvvyyy"
+    })
+    public String challenge;
+
+    private WordSquareSolver solver;
+    private int size;
+    private String sequence;
+    private LetterCounts letters;
+
+    @Setup
+    public void loadDictionary() {
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile(DictionaryLoaderBenchmark.DICTIONARY_PATH);
+        solver = new WordSquareSolver(loader);
+        String[] parts = challenge.split(":");
+        size = Integer.parseInt(parts[0]);
+        sequence = parts[1];
+        letters = LetterCounts.of(sequence);
+    }
+
+    @Benchmark
+    public long[] filterValidWords() {
+        return solver.filterValidWords(size, letters);
+    }
+
+    @Benchmark
+    public List<String> solveWordSquare() {
+        return solver.solveWordSquare(size, sequence);
+    }
+}
@@ -0,0 +1,52 @@
+package org.moyo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures dictionary start-up cost: parsing the text word list and mapping the compiled form.
+ * Run from the project root, or point -Dwordsquare.dictionary at another word list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DictionaryLoaderBenchmark {
+
+    static final String DICTIONARY_PATH = System.getProperty("wordsquare.dictionary", "src/main/resources/words.txt");
+
+    private Path compiledPath;
+
+    @Setup
+    public void compileDictionary() throws IOException {
+        compiledPath = Files.createTempFile("words", DictionaryLoader.COMPILED_EXTENSION);
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile(DICTIONARY_PATH);
+        loader.compileToBinaryFile(compiledPath.toString());
+    }
+
+    @TearDown
+    public void deleteCompiledDictionary() throws IOException {
+        Files.deleteIfExists(compiledPath);
+    }
+
+    @Benchmark
+    public DictionaryLoader loadFromTextFile() {
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile(DICTIONARY_PATH);
+        return loader;
+    }
+
+    @Benchmark
+    public DictionaryLoader loadFromBinaryFile() {
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromBinaryFile(compiledPath.toString());
+        return loader;
+    }
+}
@@ -0,0 +1,80 @@
+package org.moyo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full solves over a fixed set of random solvable puzzles per size.
+ * Each puzzle is the shuffled letters of a square found from a random first row with an
+ * unlimited letter budget, so it is solvable by construction; the seed keeps runs comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomPuzzleBenchmark {
+
+    private static final int PUZZLE_COUNT = 32;
+
+    @Param({"3", "4", "5", "6"})
+    public int size;
+
+    @Param({"42"})
+    public long seed;
+
+    private WordSquareSolver solver;
+    private final List<String> puzzles = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void generatePuzzles() {
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile(DictionaryLoaderBenchmark.DICTIONARY_PATH);
+        solver = new WordSquareSolver(loader);
+
+        PrefixIndex index = loader.getPrefixIndexForSize(size);
+        Random random = new Random(seed);
+        while (puzzles.size() < PUZZLE_COUNT) {
+            int firstRow = random.nextInt(index.size());
+            SquareSearch search = new SquareSearch(index, size, unlimitedLetters(size), firstRow, index.size());
+            if (search.next()) {
+                puzzles.add(shuffledLetters(search.square(), random));
+            }
+        }
+    }
+
+    private static LetterCounts unlimitedLetters(int size) {
+        StringBuilder letters = new StringBuilder();
+        for (char c = 'a'; c <= 'z'; c++) {
+            letters.append(String.valueOf(c).repeat(size * size));
+        }
+        return LetterCounts.of(letters);
+    }
+
+    private static String shuffledLetters(List<String> square, Random random) {
+        List<Character> letters = new ArrayList<>();
+        for (String row : square) {
+            for (char c : row.toCharArray()) {
+                letters.add(c);
+            }
+        }
+        Collections.shuffle(letters, random);
+        StringBuilder sequence = new StringBuilder();
+        letters.forEach(sequence::append);
+        return sequence.toString();
+    }
+
+    @Benchmark
+    public List<String> solveRandomPuzzle() {
+        String puzzle = puzzles.get(next);
+        next = (next + 1) % PUZZLE_COUNT;
+        return solver.solveWordSquare(size, puzzle);
+    }
+}
@@ -0,0 +1,138 @@
+package org.moyo;
+
+import java.util.*;
+
+/**
+ * The letters a dictionary is written in, numbered densely from 0 in character order.
+ * Letter budgets, frequency vectors and trie child tables are primitive arrays sized to the
+ * alphabet, so a 29-letter Nordic or a 24-letter Greek dictionary is searched exactly like an
+ * English one. Because codes follow character order, comparing code sequences orders words
+ * the same way as comparing the strings.
+ * <p>
+ * DictionarySnapshot derives the alphabet from its words: every lower-case or caseless letter
+ * they use, or the MAX_SIZE most frequent ones if there are more. Words with any other
+ * character are not indexed, as no letter budget can pay for them.
+ */
+public final class Alphabet {
+
+    /**
+     * Codes are stored in bytes, and the compiled format stores each trie node's child letters as a
+     * bit per letter in a long. PrefixIndex itself keeps a dense int[] child slot per letter
+     */
+    public static final int MAX_SIZE = 64;
+
+    public static final Alphabet LATIN = of("abcdefghijklmnopqrstuvwxyz");
+
+    private static final int DIRECT_CODES = 256;
+
+    private final char[] letters;
+    // Codes of the characters below DIRECT_CODES, -1 when not in the alphabet; the rest are binary searched
+    private final byte[] directCodes = new byte[DIRECT_CODES];
+
+    private Alphabet(char[] letters) {
+        this.letters = letters;
+        Arrays.fill(directCodes, (byte) -1);
+        for (int code = 0; code < letters.length; code++) {
+            if (letters[code] < DIRECT_CODES) {
+                directCodes[letters[code]] = (byte) code;
+            }
+        }
+    }
+
+    /**
+     * Creates the alphabet of the distinct characters of the string
+     */
+    public static Alphabet of(String letters) {
+        char[] sorted = letters.chars().distinct().sorted().collect(StringBuilder::new,
+                StringBuilder::appendCodePoint, StringBuilder::append).toString().toCharArray();
+        if (sorted.length > MAX_SIZE) {
+            throw new IllegalArgumentException("An alphabet has at most " + MAX_SIZE + " letters");
+        }
+        return new Alphabet(sorted);
+    }
+
+    /**
+     * Derives the alphabet of the words: their lower-case letters, keeping the MAX_SIZE most
+     * frequent when there are more
+     */
+    static Alphabet derive(Collection<? extends Collection<String>> buckets) {
+        long[] directCounts = new long[DIRECT_CODES];
+        Map<Character, Long> otherCounts = new HashMap<>();
+        for (Collection<String> words : buckets) {
+            if (words instanceof WordBucket bucket && bucket.getAlphabet() == null) {
+                bucket.countCharacters(directCounts);
+                continue;
+            }
+            for (String word : words) {
+                for (int i = 0; i < word.length(); i++) {
+                    char c = word.charAt(i);
+                    if (c < DIRECT_CODES) {
+                        directCounts[c]++;
+                    } else {
+                        otherCounts.merge(c, 1L, Long::sum);
+                    }
+                }
+            }
+        }
+        for (int c = 0; c < DIRECT_CODES; c++) {
+            if (directCounts[c] > 0) {
+                otherCounts.put((char) c, directCounts[c]);
+            }
+        }
+
+        StringBuilder letters = new StringBuilder();
+        otherCounts.entrySet().stream()
+                // Letters of scripts without case, such as Hebrew or CJK, are their own lower case
+                .filter(entry -> Character.isLetter(entry.getKey()) && Character.toLowerCase(entry.getKey()) == entry.getKey())
+                .sorted(Map.Entry.<Character, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_SIZE)
+                .forEach(entry -> letters.append(entry.getKey().charValue()));
+        return letters.isEmpty() ? LATIN : of(letters.toString());
+    }
+
+    /**
+     * Returns the code of the character, or -1 if it is not in the alphabet
+     */
+    public int code(char c) {
+        if (c < DIRECT_CODES) {
+            return directCodes[c];
+        }
+        int code = Arrays.binarySearch(letters, c);
+        return code >= 0 ? code : -1;
+    }
+
+    public char letter(int code) {
+        return letters[code];
+    }
+
+    public int size() {
+        return letters.length;
+    }
+
+    /**
+     * Checks if every character of the word is in the alphabet
+     */
+    public boolean contains(CharSequence word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (code(word.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Alphabet other && Arrays.equals(letters, other.letters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(letters);
+    }
+
+    @Override
+    public String toString() {
+        return new String(letters);
+    }
+}
@@ -0,0 +1,150 @@
+package org.moyo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves puzzles read line by line and writes one JSON object per puzzle (JSON Lines), in input order.
+ * Puzzles are solved on a fixed pool of workers that share one solver, and so one dictionary
+ * and its indexes. At most `window` puzzles are in flight: once the window is full, reading
+ * waits for the oldest result to be written, so memory stays flat however long the input is.
+ * <p>
+ * Input lines are "size letters" or "id size letters"; blank lines and lines starting with
+ * '#' are skipped. Without an id the line number is used.
+ */
+public class BatchSolver {
+
+    /**
+     * Totals of one run; failed counts lines that could not be parsed or solved
+     */
+    public record Summary(long puzzles, long solved, long failed, long millis) {
+
+        public double puzzlesPerSecond() {
+            return millis == 0 ? puzzles * 1000.0 : puzzles * 1000.0 / millis;
+        }
+    }
+
+    private record Outcome(boolean solved, boolean failed, String json) {
+    }
+
+    private final WordSquareSolver solver;
+    private final int workers;
+    private final int window;
+
+    public BatchSolver(WordSquareSolver solver, int workers) {
+        this(solver, workers, workers * 4);
+    }
+
+    public BatchSolver(WordSquareSolver solver, int workers, int window) {
+        if (workers <= 0 || window <= 0) {
+            throw new IllegalArgumentException("workers and window must be positive");
+        }
+        this.solver = solver;
+        this.workers = workers;
+        this.window = window;
+    }
+
+    public Summary run(BufferedReader input, Writer output) throws IOException {
+        long start = System.nanoTime();
+        long[] totals = new long[3];
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "batch-solver-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<Outcome>> pending = new ArrayDeque<>();
+        try {
+            String line;
+            long lineNumber = 0;
+            while ((line = input.readLine()) != null) {
+                lineNumber++;
+                String puzzle = line.trim();
+                if (puzzle.isEmpty() || puzzle.startsWith("#")) {
+                    continue;
+                }
+                if (pending.size() == window) {
+                    write(pending.removeFirst(), output, totals);
+                }
+                long number = lineNumber;
+                pending.addLast(pool.submit(() -> solve(number, puzzle)));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), output, totals);
+            }
+            output.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(totals[0], totals[1], totals[2], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void write(Future<Outcome> result, Writer output, long[] totals) throws IOException {
+        Outcome outcome;
+        try {
+            outcome = result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a batch result");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch worker failed", e.getCause());
+        }
+        totals[0]++;
+        if (outcome.solved()) {
+            totals[1]++;
+        }
+        if (outcome.failed()) {
+            totals[2]++;
+        }
+        output.write(outcome.json());
+        output.write('\n');
+    }
+
+    private Outcome solve(long lineNumber, String puzzle) {
+        String[] fields = puzzle.split("\\s+");
+        String id = fields.length == 3 ? fields[0] : String.valueOf(lineNumber);
+        if (fields.length < 2 || fields.length > 3) {
+            return failure(id, "Expected \"size letters\" or \"id size letters\"");
+        }
+        String sequence = fields[fields.length - 1];
+        int size;
+        try {
+            size = Integer.parseInt(fields[fields.length - 2]);
+        } catch (NumberFormatException e) {
+            return failure(id, "Size must be a valid integer");
+        }
+
+        long start = System.nanoTime();
+        try {
+            SolveResult result = solver.solve(size, sequence);
+            double millis = (System.nanoTime() - start) / 1e6;
+            StringBuilder json = new StringBuilder();
+            json.append("{\"id\":").append(Json.quote(id))
+                    .append(",\"size\":").append(size)
+                    .append(",\"sequence\":").append(Json.quote(sequence))
+                    .append(",\"solved\":").append(result.isSolved())
+                    .append(",\"square\":").append(Json.array(result.square()))
+                    .append(",\"status\":").append(Json.quote(result.status().name()))
+                    .append(",\"nodes\":").append(result.metrics().getNodesExpanded())
+                    .append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", millis))
+                    .append('}');
+            return new Outcome(result.isSolved(), false, json.toString());
+        } catch (RuntimeException e) {
+            return failure(id, e.getMessage());
+        }
+    }
+
+    private static Outcome failure(String id, String message) {
+        return new Outcome(false, true, "{\"id\":" + Json.quote(id) + ",\"error\":" + Json.quote(String.valueOf(message)) + "}");
+    }
+}
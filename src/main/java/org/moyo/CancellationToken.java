@@ -0,0 +1,23 @@
+package org.moyo;
+
+/**
+ * Lets another thread stop a running solve. The search polls it cheaply, every 1024 placements,
+ * and the solve then returns with status CANCELLED.
+ */
+public final class CancellationToken {
+
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        if (this == NONE) {
+            throw new UnsupportedOperationException("CancellationToken.NONE cannot be cancelled");
+        }
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,69 @@
+package org.moyo;
+
+/**
+ * The words of one solve laid over a shared PrefixIndex: a bitset of the word ids the letter
+ * budget allows, plus the running count of set bits before every 64-bit word.
+ * Since every trie node covers a contiguous id range, "does any allowed word start with this
+ * prefix" becomes count(rangeStart, rangeEnd) > 0, two array reads and two bit counts, so the
+ * search can run over the index of the whole length bucket instead of a per-solve copy.
+ */
+final class CandidateMask {
+
+    private final long[] bits;
+    // ranks[w] is the number of set bits in bits[0..w)
+    private final int[] ranks;
+
+    CandidateMask(long[] bits) {
+        this.bits = bits;
+        this.ranks = new int[bits.length + 1];
+        for (int w = 0; w < bits.length; w++) {
+            ranks[w + 1] = ranks[w] + Long.bitCount(bits[w]);
+        }
+    }
+
+    /**
+     * Returns the allowed ids as a bitset; the array is shared and must not be changed
+     */
+    long[] bits() {
+        return bits;
+    }
+
+    boolean contains(int id) {
+        return (bits[id >>> 6] & 1L << id) != 0;
+    }
+
+    /**
+     * Returns the number of allowed ids in [start, end)
+     */
+    int count(int start, int end) {
+        return rank(end) - rank(start);
+    }
+
+    private int rank(int id) {
+        int w = id >>> 6;
+        int below = id & 63;
+        return below == 0 ? ranks[w] : ranks[w] + Long.bitCount(bits[w] & (-1L >>> (64 - below)));
+    }
+
+    /**
+     * Returns the first allowed id in [from, end), or end if there is none
+     */
+    int next(int from, int end) {
+        if (from >= end) {
+            return end;
+        }
+        int w = from >>> 6;
+        long word = bits[w] & (-1L << from);
+        while (word == 0) {
+            if (++w << 6 >= end) {
+                return end;
+            }
+            word = bits[w];
+        }
+        return Math.min(end, (w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    int cardinality() {
+        return ranks[bits.length];
+    }
+}
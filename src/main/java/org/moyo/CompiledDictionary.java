@@ -0,0 +1,263 @@
+package org.moyo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Precompiled binary dictionary, written once by write() and memory-mapped by map().
+ * Every length bucket holds its words sorted and packed one byte per letter, their letter
+ * frequency vectors and the arrays of their prefix trie, so loading only reads the header
+ * and the word data stays off-heap in the mapping.
+ * <p>
+ * Layout: magic, version, alphabet size, bucket count, flags, the alphabet's letters as chars,
+ * then one directory entry per bucket (word length, word count, trie node count, section offset)
+ * followed by the sections. When the SCORED flag is set, every section ends with the score of
+ * each word as a float, by word id, so -top ranks a compiled dictionary like its word list. Letters are stored as their alphabet codes, so any alphabet of up
+ * to Alphabet.MAX_SIZE letters fits a byte. Trie children are stored sparsely as a letter
+ * bit mask per node plus the packed list of child ids, and expanded into the dense child
+ * table when the index is restored.
+ * Words containing characters outside the alphabet are not stored, as the solver cannot use them.
+ */
+final class CompiledDictionary {
+
+    static final int MAGIC = 0x57535144; // "WSQD"
+    static final int VERSION = 3;
+    static final int SCORED = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int DIRECTORY_ENTRY_BYTES = 20;
+
+    private final Alphabet alphabet;
+    private final boolean scored;
+    private final Map<Integer, Bucket> buckets;
+
+    private record Bucket(int wordLength, int wordCount, int nodeCount, ByteBuffer section, WordBucket words) {
+    }
+
+    private CompiledDictionary(Alphabet alphabet, boolean scored, Map<Integer, Bucket> buckets) {
+        this.alphabet = alphabet;
+        this.scored = scored;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Compiles the length buckets, written in the alphabet, into the binary format at target,
+     * with the scores of the words that have one; an empty map stores no scores
+     */
+    static void write(Map<Integer, ? extends Collection<String>> wordsByLength, Alphabet alphabet,
+                      Map<String, Float> scores, Path target) throws IOException {
+        List<PrefixIndex> indexes = new ArrayList<>();
+        for (int length : new TreeSet<>(wordsByLength.keySet())) {
+            if (length > 0 && length <= Byte.MAX_VALUE) {
+                indexes.add(new PrefixIndex(alphabet, length, wordsByLength.get(length)));
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(alphabet.size());
+            out.writeInt(indexes.size());
+            boolean scored = !scores.isEmpty();
+            out.writeInt(scored ? SCORED : 0);
+            out.writeChars(alphabet.toString());
+
+            long offset = directoryStart(alphabet.size()) + (long) DIRECTORY_ENTRY_BYTES * indexes.size();
+            for (PrefixIndex index : indexes) {
+                out.writeInt(index.getWordLength());
+                out.writeInt(index.size());
+                out.writeInt(index.rangeStarts().length);
+                out.writeLong(offset);
+                offset += sectionBytes(index.getWordLength(), index.size(), index.rangeStarts().length, alphabet.size(), scored);
+            }
+
+            for (PrefixIndex index : indexes) {
+                out.write(index.letterCodes());
+                out.write(index.letterVectors());
+                writeChildren(out, index.children(), index.rangeStarts().length, alphabet.size());
+                writeInts(out, index.rangeStarts());
+                writeInts(out, index.rangeEnds());
+                if (scored) {
+                    for (int id = 0; id < index.size(); id++) {
+                        out.writeFloat(scores.getOrDefault(index.word(id), 0f));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeChildren(DataOutputStream out, int[] children, int nodeCount, int alphabetSize) throws IOException {
+        for (int node = 0; node < nodeCount; node++) {
+            long mask = 0;
+            for (int letter = 0; letter < alphabetSize; letter++) {
+                if (children[node * alphabetSize + letter] != PrefixIndex.NO_NODE) {
+                    mask |= 1L << letter;
+                }
+            }
+            out.writeLong(mask);
+        }
+        for (int child : children) {
+            if (child != PrefixIndex.NO_NODE) {
+                out.writeInt(child);
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int directoryStart(int alphabetSize) {
+        return HEADER_BYTES + alphabetSize * Character.BYTES;
+    }
+
+    private static long sectionBytes(int wordLength, int wordCount, int nodeCount, int alphabetSize, boolean scored) {
+        return (long) wordCount * wordLength
+                + (long) wordCount * alphabetSize
+                + (long) nodeCount * Long.BYTES
+                + (long) (nodeCount - 1) * Integer.BYTES
+                + (long) nodeCount * 2 * Integer.BYTES
+                + (scored ? (long) wordCount * Float.BYTES : 0);
+    }
+
+    /**
+     * Memory-maps a compiled dictionary. Only the header is read here.
+     */
+    static CompiledDictionary map(Path source) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled dictionary: " + source);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported compiled dictionary version " + buffer.getInt(4)
+                    + ", compile it again: " + source);
+        }
+
+        int alphabetSize = buffer.getInt(8);
+        int bucketCount = buffer.getInt(12);
+        boolean scored = (buffer.getInt(16) & SCORED) != 0;
+        if (alphabetSize <= 0 || alphabetSize > Alphabet.MAX_SIZE || directoryStart(alphabetSize) > buffer.capacity()) {
+            throw new IOException("Corrupt compiled dictionary alphabet: " + source);
+        }
+        char[] letters = new char[alphabetSize];
+        buffer.slice(HEADER_BYTES, alphabetSize * Character.BYTES).asCharBuffer().get(letters);
+        Alphabet alphabet = Alphabet.of(new String(letters));
+
+        Map<Integer, Bucket> buckets = new HashMap<>();
+        for (int i = 0; i < bucketCount; i++) {
+            int entry = directoryStart(alphabetSize) + i * DIRECTORY_ENTRY_BYTES;
+            int wordLength = buffer.getInt(entry);
+            int wordCount = buffer.getInt(entry + 4);
+            int nodeCount = buffer.getInt(entry + 8);
+            long offset = buffer.getLong(entry + 12);
+            long length = sectionBytes(wordLength, wordCount, nodeCount, alphabetSize, scored);
+            if (offset + length > buffer.capacity()) {
+                throw new IOException("Truncated compiled dictionary: " + source);
+            }
+            ByteBuffer section = buffer.slice((int) offset, (int) length);
+            WordBucket words = new WordBucket(section.slice(0, wordCount * wordLength), wordLength, alphabet);
+            buckets.put(wordLength, new Bucket(wordLength, wordCount, nodeCount, section, words));
+        }
+        return new CompiledDictionary(alphabet, scored, buckets);
+    }
+
+    /**
+     * Returns the alphabet the dictionary was compiled with
+     */
+    Alphabet alphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Checks if the dictionary was compiled with word scores
+     */
+    boolean hasScores() {
+        return scored;
+    }
+
+    /**
+     * Returns the scores of the words of the length by their ids in its prefix index, or null
+     * when the dictionary has no scores or no words of the length
+     */
+    float[] scores(int wordLength) {
+        Bucket bucket = buckets.get(wordLength);
+        if (!scored || bucket == null) {
+            return null;
+        }
+        float[] result = new float[bucket.wordCount()];
+        int position = (int) sectionBytes(wordLength, bucket.wordCount(), bucket.nodeCount(), alphabet.size(), false);
+        bucket.section().slice(position, result.length * Float.BYTES).asFloatBuffer().get(result);
+        return result;
+    }
+
+    /**
+     * Returns the mapped words of every length, without copying them onto the heap
+     */
+    Map<Integer, Set<String>> buckets() {
+        Map<Integer, Set<String>> result = new HashMap<>();
+        buckets.forEach((length, bucket) -> result.put(length, bucket.words()));
+        return result;
+    }
+
+    /**
+     * Restores the prebuilt prefix index of the bucket by bulk-copying its arrays out of the mapping
+     */
+    PrefixIndex prefixIndex(int wordLength) {
+        Bucket bucket = buckets.get(wordLength);
+        if (bucket == null) {
+            return null;
+        }
+        ByteBuffer section = bucket.section();
+        int position = 0;
+
+        byte[] letterCodes = new byte[bucket.wordCount() * wordLength];
+        section.get(position, letterCodes);
+        position += letterCodes.length;
+
+        byte[] letterVectors = new byte[bucket.wordCount() * alphabet.size()];
+        section.get(position, letterVectors);
+        position += letterVectors.length;
+
+        long[] masks = new long[bucket.nodeCount()];
+        section.slice(position, masks.length * Long.BYTES).asLongBuffer().get(masks);
+        position += masks.length * Long.BYTES;
+        int[] packedChildren = new int[bucket.nodeCount() - 1];
+        position = readInts(section, position, packedChildren);
+        int[] children = expandChildren(masks, packedChildren, alphabet.size());
+        int[] rangeStart = new int[bucket.nodeCount()];
+        position = readInts(section, position, rangeStart);
+        int[] rangeEnd = new int[bucket.nodeCount()];
+        readInts(section, position, rangeEnd);
+
+        return new PrefixIndex(alphabet, wordLength, letterCodes, letterVectors, children, rangeStart, rangeEnd);
+    }
+
+    private static int[] expandChildren(long[] masks, int[] packedChildren, int alphabetSize) {
+        int[] children = new int[masks.length * alphabetSize];
+        Arrays.fill(children, PrefixIndex.NO_NODE);
+        int next = 0;
+        for (int node = 0; node < masks.length; node++) {
+            for (long mask = masks[node]; mask != 0; mask &= mask - 1) {
+                children[node * alphabetSize + Long.numberOfTrailingZeros(mask)] = packedChildren[next++];
+            }
+        }
+        return children;
+    }
+
+    private static int readInts(ByteBuffer section, int position, int[] target) {
+        section.slice(position, target.length * Integer.BYTES).asIntBuffer().get(target);
+        return position + target.length * Integer.BYTES;
+    }
+}
@@ -0,0 +1,48 @@
+package org.moyo;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates search events into counters. Safe to share with the parallel search.
+ */
+public class CountingSearchListener implements SearchListener {
+
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder solutions = new LongAdder();
+
+    @Override
+    public void onNodeVisited(int depth) {
+        nodesVisited.increment();
+    }
+
+    @Override
+    public void onBacktrack(int depth) {
+        backtracks.increment();
+    }
+
+    @Override
+    public void onSolution(List<String> square) {
+        solutions.increment();
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    public long getSolutions() {
+        return solutions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "nodes visited: " + getNodesVisited()
+                + ", backtracks: " + getBacktracks()
+                + ", solutions: " + getSolutions();
+    }
+}
@@ -1,45 +1,153 @@
 package org.moyo;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+/**
+ * Loads word lists and serves them as immutable DictionarySnapshots.
+ * Every load builds a new snapshot to the side and then swaps it in with a single volatile
+ * write, so readers never block and a solve that already took the previous snapshot finishes
+ * on it. Loads themselves are serialized.
+ */
 public class DictionaryLoader {
 
-    private Map<Integer, Set<String>> wordSizeToDictionaryMap;
+    public static final String COMPILED_EXTENSION = ".wsd";
+
+    private volatile DictionarySnapshot snapshot = new DictionarySnapshot(Map.of(), null);
 
     public DictionaryLoader() {
-        this.wordSizeToDictionaryMap =  new HashMap<>();
     }
 
+    /**
+     * Checks if the path names a compiled dictionary rather than a text word list
+     */
+    public static boolean isCompiledDictionary(String filePath) {
+        return filePath != null && filePath.endsWith(COMPILED_EXTENSION);
+    }
+
+    /**
+     * Returns the current snapshot; take it once per operation so it sees one consistent dictionary
+     */
+    public DictionarySnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Loads a text word list, or a compiled dictionary when the path has the compiled extension
+     */
+    public void load(String filePath) {
+        if (isCompiledDictionary(filePath)) {
+            loadFromBinaryFile(filePath);
+        } else {
+            loadFromTextFile(filePath);
+        }
+    }
 
-    public void loadFromTextFile(String filePath) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String word = line.trim().toLowerCase();
-                if (!word.isEmpty()) {
-                    int length = word.length();
-                    wordSizeToDictionaryMap
-                            .computeIfAbsent(length, k -> new HashSet<>())
-                            .add(word);
-                }
+    /**
+     * Loads the dictionary on the executor and builds the indexes of sizes minSize to maxSize
+     * there too, before publishing it. Solves keep using the current snapshot until then.
+     */
+    public CompletableFuture<DictionarySnapshot> reloadAsync(String filePath, int minSize, int maxSize, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (this) {
+                DictionarySnapshot loaded = isCompiledDictionary(filePath)
+                        ? readBinaryFile(filePath)
+                        : readTextFile(filePath, Map.of(), Map.of());
+                snapshot = loaded.warmUp(minSize, maxSize);
+                return loaded;
             }
-        } catch (IOException e) {
+        }, executor);
+    }
+
+    /**
+     * Adds the words of a text word list to the loaded ones, or replaces a compiled dictionary
+     */
+    public synchronized void loadFromTextFile(String filePath) {
+        DictionarySnapshot current = snapshot;
+        // Mapped buckets are read-only, so a compiled dictionary is replaced rather than extended
+        snapshot = current.isCompiled()
+                ? readTextFile(filePath, Map.of(), Map.of())
+                : readTextFile(filePath, current.getWordSizeToDictionaryMap(), current.getScores());
+    }
+
+    /**
+     * Parses the word list in parallel chunks; gzip-compressed lists are inflated as a stream
+     */
+    private static DictionarySnapshot readTextFile(String filePath, Map<Integer, Set<String>> existing, Map<String, Float> existingScores) {
+        try {
+            TextDictionaryReader.Result result = TextDictionaryReader.read(Path.of(filePath), existing, existingScores);
+            return new DictionarySnapshot(result.buckets(), null, result.scores(), result.statistics());
+        } catch (IOException | RuntimeException e) {
             throw new RuntimeException("Failed to load dictionary from file: " + filePath, e);
         }
     }
 
+    /**
+     * Memory-maps a dictionary written by compileToBinaryFile, replacing the current words.
+     * Only the header is read; the words stay in the mapping and are decoded on access.
+     */
+    public synchronized void loadFromBinaryFile(String filePath) {
+        snapshot = readBinaryFile(filePath);
+    }
+
+    private static DictionarySnapshot readBinaryFile(String filePath) {
+        try {
+            long start = System.nanoTime();
+            Path path = Path.of(filePath);
+            CompiledDictionary compiled = CompiledDictionary.map(path);
+            Map<Integer, Set<String>> buckets = compiled.buckets();
+            long words = buckets.values().stream().mapToLong(Set::size).sum();
+            return new DictionarySnapshot(buckets, compiled,
+                    new LoadStatistics(Files.size(path), 0, words, System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Failed to load compiled dictionary from file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Writes the loaded words, with their prefix indexes, letter frequency vectors and scores, as a compiled dictionary
+     */
+    public void compileToBinaryFile(String filePath) {
+        try {
+            DictionarySnapshot current = snapshot;
+            CompiledDictionary.write(current.getWordSizeToDictionaryMap(), current.getAlphabet(), current.getScores(), Path.of(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write compiled dictionary to file: " + filePath, e);
+        }
+    }
+
     public Set<String> getDictionaryForSize (int size) {
-        if(wordSizeToDictionaryMap == null || wordSizeToDictionaryMap.isEmpty() || !wordSizeToDictionaryMap.containsKey(size)) throw new RuntimeException("Alphabet does not exist for size");
-        return wordSizeToDictionaryMap.get(size);
+        return snapshot.getDictionaryForSize(size);
+    }
+
+    /**
+     * Returns the prefix index over every word of the size in the current snapshot, built on first use
+     */
+    public PrefixIndex getPrefixIndexForSize(int size) {
+        return snapshot.getPrefixIndexForSize(size);
+    }
+
+    /**
+     * Returns the letter bitset index over the words of the size in the current snapshot, built on first use.
+     * Its word ids are those of getPrefixIndexForSize.
+     */
+    public LetterBitsetIndex getLetterIndexForSize(int size) {
+        return snapshot.getLetterIndexForSize(size);
+    }
+
+    /**
+     * Identifies the loaded words; it changes with every load, on this or any other loader
+     */
+    public long getVersion() {
+        return snapshot.getVersion();
     }
 
     public Map<Integer, Set<String>> getWordSizeToDictionaryMap() {
-        return wordSizeToDictionaryMap;
+        return snapshot.getWordSizeToDictionaryMap();
     }
 }
@@ -0,0 +1,217 @@
+package org.moyo;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, versioned view of a loaded dictionary: its words by length and their prefix and
+ * letter indexes, which are built once per length on first use.
+ * Loading never changes a snapshot; DictionaryLoader publishes a new one instead. A solve that
+ * took a snapshot keeps a consistent view however often the dictionary is reloaded meanwhile,
+ * and an old snapshot is garbage collected once the last solve using it has finished.
+ * <p>
+ * The alphabet is derived from the words when the snapshot is created, or read from the
+ * header of a compiled dictionary, and every index of the snapshot is built over it.
+ */
+public final class DictionarySnapshot {
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version;
+    private final Map<Integer, Set<String>> wordSizeToDictionaryMap;
+    private final CompiledDictionary compiled;
+    private final Alphabet alphabet;
+    private final Map<String, Float> scores;
+    private final LoadStatistics loadStatistics;
+    private final Map<Integer, PrefixIndex> prefixIndexes = new ConcurrentHashMap<>();
+    private final Map<Integer, WordScores> wordScores = new ConcurrentHashMap<>();
+    private volatile Long contentHash;
+    private final Map<Integer, LetterBitsetIndex> letterIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Takes ownership of the buckets, which must not be changed afterwards
+     */
+    DictionarySnapshot(Map<Integer, Set<String>> wordSizeToDictionaryMap, CompiledDictionary compiled) {
+        this(wordSizeToDictionaryMap, compiled, LoadStatistics.NONE);
+    }
+
+    DictionarySnapshot(Map<Integer, Set<String>> wordSizeToDictionaryMap, CompiledDictionary compiled, LoadStatistics loadStatistics) {
+        this(wordSizeToDictionaryMap, compiled, Map.of(), loadStatistics);
+    }
+
+    /**
+     * Also takes the scores of the words that have one, keyed by word
+     */
+    DictionarySnapshot(Map<Integer, Set<String>> wordSizeToDictionaryMap, CompiledDictionary compiled,
+                       Map<String, Float> scores, LoadStatistics loadStatistics) {
+        this.version = VERSIONS.incrementAndGet();
+        this.scores = Map.copyOf(scores);
+        this.wordSizeToDictionaryMap = Map.copyOf(wordSizeToDictionaryMap);
+        this.compiled = compiled;
+        this.alphabet = compiled != null ? compiled.alphabet() : Alphabet.derive(this.wordSizeToDictionaryMap.values());
+        this.loadStatistics = loadStatistics;
+    }
+
+    /**
+     * Identifies the snapshot; every snapshot ever created has a different version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a 64-bit hash of the words written in the alphabet, the ones solves can use,
+     * computed on first use. Unlike the version it is the same for every load of the same
+     * words, in any order and from text or compiled files, so it identifies the dictionary
+     * across restarts.
+     */
+    public long getContentHash() {
+        Long hash = contentHash;
+        if (hash == null) {
+            long sum = 0;
+            long count = 0;
+            for (Set<String> words : wordSizeToDictionaryMap.values()) {
+                for (String word : words) {
+                    if (alphabet.contains(word)) {
+                        sum += mix(stringHash(word));
+                        count++;
+                    }
+                }
+            }
+            hash = mix(sum ^ mix(count));
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * 64-bit FNV-1a over the chars of the string
+     */
+    static long stringHash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of the value, so sums of mixed hashes do not cancel out
+     */
+    static long mix(long value) {
+        value = (value ^ value >>> 33) * 0xff51afd7ed558ccdL;
+        value = (value ^ value >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return value ^ value >>> 33;
+    }
+
+    /**
+     * Returns what the load that produced this snapshot read and how long it took
+     */
+    public LoadStatistics getLoadStatistics() {
+        return loadStatistics;
+    }
+
+    /**
+     * Returns the letters the words of this snapshot are written in
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Checks if the word list, or the one the dictionary was compiled from, gave any word a score
+     */
+    public boolean hasScores() {
+        return compiled != null ? compiled.hasScores() : !scores.isEmpty();
+    }
+
+    /**
+     * Returns the scores of the words that have one; the map is read-only. A compiled
+     * dictionary decodes its stored scores into a new map on every call.
+     */
+    Map<String, Float> getScores() {
+        if (compiled == null || !compiled.hasScores()) {
+            return scores;
+        }
+        Map<String, Float> stored = new HashMap<>();
+        for (int size : wordSizeToDictionaryMap.keySet()) {
+            float[] byId = compiled.scores(size);
+            if (byId != null) {
+                PrefixIndex index = getPrefixIndexForSize(size);
+                for (int id = 0; id < byId.length; id++) {
+                    stored.put(index.word(id), byId[id]);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(stored);
+    }
+
+    /**
+     * Returns the scores of the words of the size by their ids in getPrefixIndexForSize, built on first use.
+     * A compiled dictionary reads them from its mapping.
+     */
+    public WordScores getScoresForSize(int size) {
+        PrefixIndex index = getPrefixIndexForSize(size);
+        return wordScores.computeIfAbsent(size, length -> {
+            float[] stored = compiled == null ? null : compiled.scores(length);
+            return stored != null ? new WordScores(index, stored) : new WordScores(index, scores);
+        });
+    }
+
+    boolean isCompiled() {
+        return compiled != null;
+    }
+
+    public Set<String> getDictionaryForSize(int size) {
+        Set<String> words = wordSizeToDictionaryMap.get(size);
+        if (words == null) {
+            throw new RuntimeException("Alphabet does not exist for size");
+        }
+        return words;
+    }
+
+    /**
+     * Returns the prefix index over every word of the size, built on first use.
+     * A compiled dictionary restores its prebuilt index instead of rebuilding it.
+     */
+    public PrefixIndex getPrefixIndexForSize(int size) {
+        Set<String> words = getDictionaryForSize(size);
+        return prefixIndexes.computeIfAbsent(size, length -> {
+            PrefixIndex prebuilt = compiled == null ? null : compiled.prefixIndex(length);
+            return prebuilt != null ? prebuilt : new PrefixIndex(alphabet, length, words);
+        });
+    }
+
+    /**
+     * Returns the letter bitset index over the words of the size, built on first use.
+     * Its word ids are those of getPrefixIndexForSize.
+     */
+    public LetterBitsetIndex getLetterIndexForSize(int size) {
+        PrefixIndex index = getPrefixIndexForSize(size);
+        return letterIndexes.computeIfAbsent(size, length -> new LetterBitsetIndex(index));
+    }
+
+    /**
+     * Builds the indexes of every length from minSize to maxSize that has words, so the
+     * first solves on this snapshot do not pay for them
+     */
+    public DictionarySnapshot warmUp(int minSize, int maxSize) {
+        for (int size : wordSizeToDictionaryMap.keySet()) {
+            if (size >= minSize && size <= maxSize) {
+                getLetterIndexForSize(size);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the words by length; the map and its sets are read-only
+     */
+    public Map<Integer, Set<String>> getWordSizeToDictionaryMap() {
+        return wordSizeToDictionaryMap;
+    }
+}
@@ -0,0 +1,10 @@
+package org.moyo;
+
+import java.util.List;
+
+/**
+ * The squares of an enumerating solve, in search order, together with how the solve ended and
+ * its metrics. A solve stopped early holds the squares found until then.
+ */
+public record EnumerationResult(List<List<String>> squares, SolveStatus status, SolverMetrics metrics) {
+}
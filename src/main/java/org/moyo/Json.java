@@ -0,0 +1,42 @@
+package org.moyo;
+
+import java.util.List;
+
+/**
+ * The little JSON writing the batch mode and the HTTP service need, without a JSON library
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    static String quote(String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    static String array(List<String> words) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < words.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(quote(words.get(i)));
+        }
+        return json.append(']').toString();
+    }
+
+    static String error(String message) {
+        return "{\"error\":" + quote(String.valueOf(message)) + "}";
+    }
+}
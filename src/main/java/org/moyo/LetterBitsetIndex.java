@@ -0,0 +1,122 @@
+package org.moyo;
+
+import java.util.Arrays;
+
+/**
+ * Per-length index answering "which words can be spelled from these letters" with bitset
+ * operations instead of counting letters word by word.
+ * For every letter and count k it keeps the bitset of word ids using that letter at least
+ * k times, so a word can be formed exactly when it is in none of the sets
+ * atLeast[letter][available + 1]: filtering is one AND-NOT pass over a long[] per letter
+ * of the alphabet.
+ * Word ids are those of the PrefixIndex the bitsets were built from.
+ */
+public class LetterBitsetIndex {
+
+    private final Alphabet alphabet;
+    private final int wordCount;
+    // atLeast[letter][k] holds the words using the letter at least k times; index 0 is unused
+    private final long[][][] atLeast;
+
+    public LetterBitsetIndex(PrefixIndex index) {
+        this.alphabet = index.getAlphabet();
+        this.wordCount = index.size();
+        int alphabetSize = alphabet.size();
+        byte[] vectors = index.letterVectors();
+        int words = wordsFor(wordCount);
+
+        int[] maxCount = new int[alphabetSize];
+        for (int id = 0; id < wordCount; id++) {
+            for (int letter = 0; letter < alphabetSize; letter++) {
+                maxCount[letter] = Math.max(maxCount[letter], vectors[index.vectorOffset(id) + letter]);
+            }
+        }
+
+        this.atLeast = new long[alphabetSize][][];
+        for (int letter = 0; letter < alphabetSize; letter++) {
+            atLeast[letter] = new long[maxCount[letter] + 1][words];
+        }
+        for (int id = 0; id < wordCount; id++) {
+            for (int letter = 0; letter < alphabetSize; letter++) {
+                for (int k = 1; k <= vectors[index.vectorOffset(id) + letter]; k++) {
+                    atLeast[letter][k][id >>> 6] |= 1L << id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the bitset of word ids that can be spelled from the available letters
+     */
+    public long[] filter(LetterCounts available) {
+        if (!available.getAlphabet().equals(alphabet)) {
+            throw new IllegalArgumentException("Letters of alphabet " + available.getAlphabet()
+                    + " cannot filter words of alphabet " + alphabet);
+        }
+        long[] result = new long[wordsFor(wordCount)];
+        if (wordCount == 0) {
+            return result;
+        }
+        Arrays.fill(result, -1L);
+        int tail = wordCount & 63;
+        if (tail != 0) {
+            result[result.length - 1] = (1L << tail) - 1;
+        }
+
+        for (int letter = 0; letter < atLeast.length; letter++) {
+            long[][] counts = atLeast[letter];
+            int excluded = available.count(letter) + 1;
+            if (excluded < counts.length) {
+                long[] tooMany = counts[excluded];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] &= ~tooMany[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bitset of the words using the letter at least k times, or null when no word
+     * does; the array is shared and must not be changed
+     */
+    long[] wordsUsingAtLeast(int letter, int k) {
+        return k < atLeast[letter].length ? atLeast[letter][k] : null;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first set bit at or after from, or -1 if there is none
+     */
+    static int nextSetBit(long[] bits, int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+        long current = bits[word] & (-1L << from);
+        while (true) {
+            if (current != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(current);
+            }
+            if (++word == bits.length) {
+                return -1;
+            }
+            current = bits[word];
+        }
+    }
+}
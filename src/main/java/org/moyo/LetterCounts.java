@@ -0,0 +1,217 @@
+package org.moyo;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mutable multiset of letters backed by a primitive int array with one slot per letter of
+ * its alphabet, a-z unless another Alphabet is given.
+ * Consuming and restoring letters is an in-place subtract/add, so the search can
+ * debit and credit its letter budget without allocating.
+ * Characters outside the alphabet are not counted, as no indexed word can use them.
+ */
+public final class LetterCounts {
+
+    private final Alphabet alphabet;
+    private final int[] counts;
+    private int total;
+
+    public LetterCounts() {
+        this(Alphabet.LATIN);
+    }
+
+    public LetterCounts(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.counts = new int[alphabet.size()];
+    }
+
+    private LetterCounts(Alphabet alphabet, int[] counts, int total) {
+        this.alphabet = alphabet;
+        this.counts = counts;
+        this.total = total;
+    }
+
+    public static LetterCounts of(CharSequence letters) {
+        return of(Alphabet.LATIN, letters);
+    }
+
+    public static LetterCounts of(Alphabet alphabet, CharSequence letters) {
+        LetterCounts result = new LetterCounts(alphabet);
+        for (int i = 0; i < letters.length(); i++) {
+            result.add(letters.charAt(i), 1);
+        }
+        return result;
+    }
+
+    public static LetterCounts fromMap(Map<Character, Integer> frequencies) {
+        LetterCounts result = new LetterCounts();
+        frequencies.forEach(result::add);
+        return result;
+    }
+
+    private void add(char letter, int count) {
+        int code = alphabet.code(letter);
+        if (code >= 0) {
+            counts[code] += count;
+            total += count;
+        }
+    }
+
+    public int get(char letter) {
+        int code = alphabet.code(letter);
+        return code >= 0 ? counts[code] : 0;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Count for a letter code of the alphabet
+     */
+    int count(int letter) {
+        return counts[letter];
+    }
+
+    /**
+     * Removes count copies of the letter code if that many are left, otherwise leaves the counts unchanged
+     */
+    boolean removeCode(int letter, int count) {
+        if (counts[letter] < count) {
+            return false;
+        }
+        counts[letter] -= count;
+        total -= count;
+        return true;
+    }
+
+    void addCode(int letter, int count) {
+        counts[letter] += count;
+        total += count;
+    }
+
+    /**
+     * Number of letters whose count is odd
+     */
+    int oddCount() {
+        int odd = 0;
+        for (int count : counts) {
+            odd += count & 1;
+        }
+        return odd;
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return total == 0;
+    }
+
+    /**
+     * Checks if the word can be spelled from these letters, without allocating
+     */
+    public boolean contains(CharSequence word) {
+        for (int i = 0; i < word.length(); i++) {
+            int code = alphabet.code(word.charAt(i));
+            if (code < 0) {
+                restore(word, i);
+                return false;
+            }
+            if (--counts[code] < 0) {
+                restore(word, i + 1);
+                return false;
+            }
+        }
+        restore(word, word.length());
+        return true;
+    }
+
+    private void restore(CharSequence word, int length) {
+        for (int i = 0; i < length; i++) {
+            counts[alphabet.code(word.charAt(i))]++;
+        }
+    }
+
+    /**
+     * Checks the precomputed frequency vector stored at offset against these letters
+     */
+    public boolean contains(byte[] vectors, int offset) {
+        for (int letter = 0; letter < counts.length; letter++) {
+            if (counts[letter] < vectors[offset + letter]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void subtract(CharSequence word) {
+        for (int i = 0; i < word.length(); i++) {
+            add(word.charAt(i), -1);
+        }
+    }
+
+    public void subtract(byte[] vectors, int offset) {
+        for (int letter = 0; letter < counts.length; letter++) {
+            counts[letter] -= vectors[offset + letter];
+            total -= vectors[offset + letter];
+        }
+    }
+
+    public void add(byte[] vectors, int offset) {
+        for (int letter = 0; letter < counts.length; letter++) {
+            counts[letter] += vectors[offset + letter];
+            total += vectors[offset + letter];
+        }
+    }
+
+    /**
+     * Returns these letters counted in the other alphabet, dropping those it does not have
+     */
+    public LetterCounts in(Alphabet target) {
+        if (target.equals(alphabet)) {
+            return this;
+        }
+        LetterCounts result = new LetterCounts(target);
+        for (int letter = 0; letter < counts.length; letter++) {
+            result.add(alphabet.letter(letter), counts[letter]);
+        }
+        return result;
+    }
+
+    public LetterCounts copy() {
+        return new LetterCounts(alphabet, counts.clone(), total);
+    }
+
+    /**
+     * Returns the non-zero counts as a map, mainly for display and tests
+     */
+    public Map<Character, Integer> toMap() {
+        Map<Character, Integer> result = new TreeMap<>();
+        for (int letter = 0; letter < counts.length; letter++) {
+            if (counts[letter] != 0) {
+                result.put(alphabet.letter(letter), counts[letter]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the letters in alphabetical order, the same for every anagram
+     */
+    public String toSortedString() {
+        StringBuilder letters = new StringBuilder(total);
+        for (int letter = 0; letter < counts.length; letter++) {
+            for (int i = 0; i < counts[letter]; i++) {
+                letters.append(alphabet.letter(letter));
+            }
+        }
+        return letters.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
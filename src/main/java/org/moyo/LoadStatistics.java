@@ -0,0 +1,26 @@
+package org.moyo;
+
+import java.util.Locale;
+
+/**
+ * How much a dictionary load read and how fast: bytes read from the file (compressed size
+ * for gzip input), non-empty lines parsed, distinct words kept and wall-clock time
+ */
+public record LoadStatistics(long bytes, long lines, long words, long nanos) {
+
+    static final LoadStatistics NONE = new LoadStatistics(0, 0, 0, 0);
+
+    public double megabytesPerSecond() {
+        return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+    }
+
+    public double linesPerSecond() {
+        return nanos == 0 ? 0 : lines / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d words from %d lines (%.1f MB) in %.1f ms, %.1f MB/s, %.0f lines/s",
+                words, lines, bytes / 1e6, nanos / 1e6, megabytesPerSecond(), linesPerSecond());
+    }
+}
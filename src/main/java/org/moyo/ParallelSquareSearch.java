@@ -0,0 +1,142 @@
+package org.moyo;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Splits the word square search across a ForkJoinPool by first-row candidate.
+ * Each leaf task runs its own SquareSearch over the subtree of one first-row word, and
+ * work stealing balances the uneven subtrees. The result is the square of the lowest
+ * first-row id that has one, which is exactly what the sequential search returns, and
+ * once a square is found every subtree with a higher first-row id is cancelled.
+ * An optional stop condition stops every subtree, and so does interrupting the thread that
+ * created the search, as for a sequential search. An optional candidate mask skips the
+ * first-row words it excludes without creating tasks for them.
+ */
+class ParallelSquareSearch {
+
+    private final PrefixIndex index;
+    private final int size;
+    private final LetterCounts letters;
+    private final CandidateMask mask;
+    private final Consumer<SquareSearch> setup;
+    private final BooleanSupplier stopCondition;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicBoolean callerInterrupted = new AtomicBoolean();
+    private final AtomicInteger bestFirstRow = new AtomicInteger(Integer.MAX_VALUE);
+
+    /**
+     * setup configures every leaf search (strategy, listener, metrics) the way a sequential search would be;
+     * mask and stopCondition may be null
+     */
+    ParallelSquareSearch(PrefixIndex index, int size, LetterCounts letters, CandidateMask mask,
+                         Consumer<SquareSearch> setup, BooleanSupplier stopCondition) {
+        this.index = index;
+        this.size = size;
+        this.letters = letters;
+        this.mask = mask;
+        this.setup = setup;
+        // Leaf searches run on pool threads, so an interrupt of the caller reaches them through this flag
+        BooleanSupplier condition = stopCondition == null ? () -> false : stopCondition;
+        this.stopCondition = () -> callerInterrupted.get() || condition.getAsBoolean();
+    }
+
+    /**
+     * Checks if the stop condition cut the last find short
+     */
+    boolean wasStopped() {
+        return stopped.get();
+    }
+
+    Optional<List<String>> find(ForkJoinPool pool) {
+        if (size == 0 || index.getWordLength() != size) {
+            return new SquareSearch(index, size, letters.copy()).next() ? Optional.of(List.of()) : Optional.empty();
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            stopped.set(true);
+            return Optional.empty();
+        }
+        FirstRowTask task = new FirstRowTask(index.rangeStart(PrefixIndex.ROOT), index.rangeEnd(PrefixIndex.ROOT));
+        pool.execute(task);
+        Found found;
+        try {
+            found = task.get();
+        } catch (InterruptedException e) {
+            // Stop every subtree and wait for them, so no leaf search outlives the call
+            callerInterrupted.set(true);
+            task.join();
+            Thread.currentThread().interrupt();
+            stopped.set(true);
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+        return found == null ? Optional.empty() : Optional.of(found.square);
+    }
+
+    private record Found(int firstRow, List<String> square) {
+    }
+
+    private static Found lowest(Found left, Found right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        return left.firstRow <= right.firstRow ? left : right;
+    }
+
+    private final class FirstRowTask extends RecursiveTask<Found> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        FirstRowTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Found compute() {
+            if (start >= end || start >= bestFirstRow.get() || mask != null && mask.count(start, end) == 0) {
+                return null;
+            }
+            if (stopCondition.getAsBoolean()) {
+                stopped.set(true);
+                return null;
+            }
+            if (end - start == 1) {
+                return searchSubtree(start);
+            }
+            int middle = (start + end) >>> 1;
+            FirstRowTask right = new FirstRowTask(middle, end);
+            right.fork();
+            Found left = new FirstRowTask(start, middle).compute();
+            return lowest(left, right.join());
+        }
+
+        private Found searchSubtree(int firstRow) {
+            SquareSearch search = new SquareSearch(index, size, letters.copy(), firstRow, firstRow + 1);
+            setup.accept(search);
+            search.setStopCondition(() -> bestFirstRow.get() < firstRow || stopCondition.getAsBoolean());
+            if (!search.next()) {
+                if (search.wasStopped() && bestFirstRow.get() >= firstRow) {
+                    stopped.set(true);
+                }
+                return null;
+            }
+            bestFirstRow.accumulateAndGet(firstRow, Math::min);
+            return new Found(firstRow, search.square());
+        }
+    }
+}
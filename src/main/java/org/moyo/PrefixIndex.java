@@ -0,0 +1,283 @@
+package org.moyo;
+
+import java.util.*;
+
+/**
+ * Prefix index (trie) over a set of words of the same length.
+ * Words are kept in sorted order so every trie node covers a contiguous range of word ids,
+ * which means both "which words start with this prefix" and "can this prefix still be
+ * completed" are answered in time proportional to the prefix length.
+ * The letter frequency vector of every word is computed once here so the search never
+ * has to count letters itself. All data lives in primitive arrays, so a prebuilt index
+ * can be restored from a compiled dictionary without rebuilding it.
+ * Letters are stored as codes of the index's Alphabet; child tables and frequency vectors
+ * have one slot per letter of it.
+ */
+public class PrefixIndex {
+
+    static final int NO_NODE = -1;
+    static final int ROOT = 0;
+
+    private final Alphabet alphabet;
+    private final int alphabetSize;
+    private final int wordLength;
+    private final int wordCount;
+    private final byte[] letterVectors;
+    private final byte[] letterCodes;
+    private int[] children;
+    private int[] rangeStart;
+    private int[] rangeEnd;
+    private int nodeCount;
+    // positionBits[position * alphabetSize + code] holds the ids of the words with that letter
+    // at that position, built on first use by the slot-ordered search
+    private volatile long[][] positionBits;
+
+    /**
+     * Builds the index over the words of the given length.
+     * Words of a different length or containing characters outside a-z are ignored.
+     */
+    public PrefixIndex(int wordLength, Collection<String> candidates) {
+        this(Alphabet.LATIN, wordLength, candidates);
+    }
+
+    /**
+     * Builds the index over the words of the given length written in the alphabet; words
+     * of a different length or with a character outside it are ignored
+     */
+    public PrefixIndex(Alphabet alphabet, int wordLength, Collection<String> candidates) {
+        this(alphabet, wordLength, sortedLetterCodes(alphabet, wordLength, candidates));
+    }
+
+    /**
+     * Builds the index over words given as letter codes, already sorted and distinct
+     */
+    private PrefixIndex(Alphabet alphabet, int wordLength, byte[] letterCodes) {
+        this.alphabet = alphabet;
+        this.alphabetSize = alphabet.size();
+        this.wordLength = wordLength;
+        this.wordCount = wordLength == 0 ? 0 : letterCodes.length / wordLength;
+
+        int capacity = Math.max(1, wordCount * wordLength + 1);
+        this.children = new int[capacity * alphabetSize];
+        this.rangeStart = new int[capacity];
+        this.rangeEnd = new int[capacity];
+        Arrays.fill(children, NO_NODE);
+        this.nodeCount = 1;
+        this.letterVectors = new byte[wordCount * alphabetSize];
+        this.letterCodes = letterCodes;
+
+        for (int id = 0; id < wordCount; id++) {
+            for (int i = 0; i < wordLength; i++) {
+                letterVectors[vectorOffset(id) + letterCodes[id * wordLength + i]]++;
+            }
+            insert(id);
+        }
+        trimToSize();
+    }
+
+    /**
+     * Returns the letter codes of the indexable candidates of the length in sorted order.
+     * A packed bucket is already sorted, so its codes are read straight from its bytes.
+     */
+    private static byte[] sortedLetterCodes(Alphabet alphabet, int wordLength, Collection<String> candidates) {
+        if (wordLength > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Word length must not exceed " + Byte.MAX_VALUE);
+        }
+        if (candidates instanceof WordBucket bucket && bucket.getWordLength() == wordLength) {
+            return bucket.indexableLetterCodes(alphabet);
+        }
+        String[] words = candidates.stream()
+                .filter(word -> word.length() == wordLength && alphabet.contains(word))
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+        byte[] letterCodes = new byte[words.length * wordLength];
+        for (int id = 0; id < words.length; id++) {
+            for (int i = 0; i < wordLength; i++) {
+                letterCodes[id * wordLength + i] = (byte) alphabet.code(words[id].charAt(i));
+            }
+        }
+        return letterCodes;
+    }
+
+    /**
+     * Restores an index from arrays previously taken from another PrefixIndex
+     */
+    PrefixIndex(Alphabet alphabet, int wordLength, byte[] letterCodes, byte[] letterVectors, int[] children, int[] rangeStart, int[] rangeEnd) {
+        this.alphabet = alphabet;
+        this.alphabetSize = alphabet.size();
+        this.wordLength = wordLength;
+        this.wordCount = wordLength == 0 ? 0 : letterCodes.length / wordLength;
+        this.letterCodes = letterCodes;
+        this.letterVectors = letterVectors;
+        this.children = children;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.nodeCount = rangeStart.length;
+    }
+
+    private void insert(int id) {
+        int node = ROOT;
+        rangeEnd[node] = id + 1;
+        for (int i = 0; i < wordLength; i++) {
+            int slot = node * alphabetSize + letterCodes[id * wordLength + i];
+            if (children[slot] == NO_NODE) {
+                children[slot] = nodeCount;
+                rangeStart[nodeCount] = id;
+                nodeCount++;
+            }
+            node = children[slot];
+            rangeEnd[node] = id + 1;
+        }
+    }
+
+    private void trimToSize() {
+        children = Arrays.copyOf(children, nodeCount * alphabetSize);
+        rangeStart = Arrays.copyOf(rangeStart, nodeCount);
+        rangeEnd = Arrays.copyOf(rangeEnd, nodeCount);
+    }
+
+    /**
+     * Returns the child of the node for the given letter, or NO_NODE if no word continues that way
+     */
+    public int child(int node, char letter) {
+        int code = alphabet.code(letter);
+        if (node == NO_NODE || code < 0) {
+            return NO_NODE;
+        }
+        return children[node * alphabetSize + code];
+    }
+
+    /**
+     * Same as child but takes the letter code stored in letterCodes
+     */
+    int childByCode(int node, int code) {
+        return children[node * alphabetSize + code];
+    }
+
+    /**
+     * Walks the trie along the prefix, returning the node reached or NO_NODE
+     */
+    public int find(String prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node != NO_NODE; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Checks if any indexed word starts with this prefix
+     */
+    public boolean hasPrefix(String prefix) {
+        return wordCount > 0 && find(prefix) != NO_NODE;
+    }
+
+    /**
+     * Returns the indexed words starting with this prefix, in sorted order
+     */
+    public List<String> wordsWithPrefix(String prefix) {
+        int node = find(prefix);
+        if (node == NO_NODE || wordCount == 0) {
+            return List.of();
+        }
+        int start = rangeStart[node];
+        int end = rangeEnd[node];
+        return new AbstractList<>() {
+            @Override
+            public String get(int i) {
+                Objects.checkIndex(i, end - start);
+                return word(start + i);
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    public int rangeStart(int node) {
+        return rangeStart[node];
+    }
+
+    public int rangeEnd(int node) {
+        return rangeEnd[node];
+    }
+
+    /**
+     * Returns the shared array holding the letter frequency vectors of all words
+     */
+    byte[] letterVectors() {
+        return letterVectors;
+    }
+
+    /**
+     * Returns the letter codes of all words, word id at offset id * wordLength
+     */
+    byte[] letterCodes() {
+        return letterCodes;
+    }
+
+    int[] children() {
+        return children;
+    }
+
+    int[] rangeStarts() {
+        return rangeStart;
+    }
+
+    int[] rangeEnds() {
+        return rangeEnd;
+    }
+
+    /**
+     * Returns the bitset of the ids of the words with the letter code at the position. The
+     * bitsets of every position and letter are built together on first use and must not be changed.
+     */
+    long[] wordsWithLetterAt(int position, int code) {
+        long[][] bits = positionBits;
+        if (bits == null) {
+            bits = new long[wordLength * alphabetSize][(wordCount + 63) >>> 6];
+            for (int id = 0; id < wordCount; id++) {
+                for (int i = 0; i < wordLength; i++) {
+                    bits[i * alphabetSize + letterCodes[id * wordLength + i]][id >>> 6] |= 1L << id;
+                }
+            }
+            positionBits = bits;
+        }
+        return bits[position * alphabetSize + code];
+    }
+
+    /**
+     * Returns the offset of the frequency vector of the word in letterVectors
+     */
+    int vectorOffset(int id) {
+        return id * alphabetSize;
+    }
+
+    public String word(int id) {
+        char[] letters = new char[wordLength];
+        int offset = id * wordLength;
+        for (int i = 0; i < wordLength; i++) {
+            letters[i] = alphabet.letter(letterCodes[offset + i]);
+        }
+        return new String(letters);
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    int alphabetSize() {
+        return alphabetSize;
+    }
+
+    public int size() {
+        return wordCount;
+    }
+
+    public int getWordLength() {
+        return wordLength;
+    }
+}
@@ -0,0 +1,10 @@
+package org.moyo;
+
+import java.util.List;
+
+/**
+ * The highest scoring squares of a ranked solve, best first, together with how the solve
+ * ended and its metrics. A solve stopped early holds the best squares found until then.
+ */
+public record RankedResult(List<RankedSquare> squares, SolveStatus status, SolverMetrics metrics) {
+}
@@ -0,0 +1,9 @@
+package org.moyo;
+
+import java.util.List;
+
+/**
+ * A square together with its score, the sum of the scores of its rows
+ */
+public record RankedSquare(List<String> square, double score) {
+}
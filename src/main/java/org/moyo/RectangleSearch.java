@@ -0,0 +1,264 @@
+package org.moyo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Depth-first search for word rectangles: rows words of length columns read across and
+ * columns words of length rows read down, each from its own prefix index. With rows equal
+ * to columns this is a double word square, whose rows and columns are different words.
+ * <p>
+ * The search fills the grid cell by cell in row-major order. Each cell follows the row
+ * trie and its column trie at the same time, so a letter is only tried when both the row
+ * and the column can still complete to an allowed word and the budget still has it, and
+ * a row is never enumerated only to fail its column checks later. Every cell uses one
+ * letter, so the budget is debited one letter per cell. No word appears twice in a result,
+ * which rules out the symmetric squares where every row equals its column.
+ * Like SquareSearch it is iterative over preallocated arrays and resumable through next().
+ */
+class RectangleSearch {
+
+    // The stop condition is polled once every STOP_CHECK_INTERVAL cells placed
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    private final PrefixIndex rowIndex;
+    private final CandidateMask rowMask;
+    private final PrefixIndex columnIndex;
+    private final CandidateMask columnMask;
+    private final boolean sharedIndex;
+    private final int rows;
+    private final int columns;
+    private final int alphabetSize;
+    private final LetterCounts remainingLetters;
+
+    // Per cell p = row * columns + col: its letter code, the next letter to try there and the
+    // row trie node reached before it
+    private final int[] cells;
+    private final int[] nextLetter;
+    private final int[] rowNodes;
+    // cursors[row][col] is the column trie node reached by column col after `row` letters
+    private final int[][] cursors;
+    private final int[] rowWords;
+    private final int[] columnWords;
+
+    private BooleanSupplier stopCondition = () -> Thread.currentThread().isInterrupted();
+    private SolverMetrics metrics;
+    private final long[] nodesPerDepth;
+    private final long[] pruneCounts = new long[SolverMetrics.Prune.values().length];
+    private int placementsUntilCheck = STOP_CHECK_INTERVAL;
+    private int cell;
+    private boolean started;
+    private boolean exhausted;
+    private boolean stopped;
+
+    /**
+     * rowIndex holds the words of length columns, columnIndex those of length rows; the masks
+     * select the words the letters allow and may be null to allow every word
+     */
+    RectangleSearch(PrefixIndex rowIndex, CandidateMask rowMask, PrefixIndex columnIndex, CandidateMask columnMask,
+                    LetterCounts remainingLetters) {
+        this.rowIndex = rowIndex;
+        this.rowMask = rowMask;
+        this.columnIndex = columnIndex;
+        this.columnMask = columnMask;
+        this.sharedIndex = rowIndex == columnIndex;
+        this.rows = columnIndex.getWordLength();
+        this.columns = rowIndex.getWordLength();
+        this.alphabetSize = rowIndex.alphabetSize();
+        this.remainingLetters = remainingLetters;
+        this.cells = new int[rows * columns];
+        this.nextLetter = new int[rows * columns];
+        this.rowNodes = new int[rows * columns];
+        this.cursors = new int[rows + 1][columns];
+        this.rowWords = new int[rows];
+        this.columnWords = new int[columns];
+        this.nodesPerDepth = new long[rows];
+        Arrays.fill(cursors[0], PrefixIndex.ROOT);
+    }
+
+    /**
+     * Sets a condition polled periodically during the search; once it returns true the
+     * search stops as if exhausted and wasStopped() reports it
+     */
+    void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    boolean wasStopped() {
+        return stopped;
+    }
+
+    /**
+     * Advances to the next complete rectangle; returns false once the search space is exhausted
+     */
+    boolean next() {
+        boolean found = advance();
+        if (metrics != null) {
+            metrics.addSearchCounts(nodesPerDepth, pruneCounts);
+            Arrays.fill(nodesPerDepth, 0);
+            Arrays.fill(pruneCounts, 0);
+        }
+        return found;
+    }
+
+    private boolean advance() {
+        if (exhausted) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            if (rows == 0 || columns == 0 || rowIndex.size() == 0 || columnIndex.size() == 0) {
+                exhausted = true;
+                return false;
+            }
+            openCell(0, PrefixIndex.ROOT);
+        } else {
+            // Resume below the previously returned rectangle
+            undo(cell);
+        }
+
+        while (true) {
+            if (--placementsUntilCheck == 0) {
+                placementsUntilCheck = STOP_CHECK_INTERVAL;
+                if (stopCondition.getAsBoolean()) {
+                    stopped = true;
+                    exhausted = true;
+                    return false;
+                }
+            }
+            if (!placeNextLetter(cell)) {
+                if (cell == 0) {
+                    exhausted = true;
+                    return false;
+                }
+                undo(--cell);
+                continue;
+            }
+
+            int row = cell / columns;
+            int col = cell % columns;
+            int rowNode = rowIndex.childByCode(rowNodes[cell], cells[cell]);
+            if (col == columns - 1) {
+                int word = rowIndex.rangeStart(rowNode);
+                if (!isNewRowWord(row, word)) {
+                    undo(cell);
+                    continue;
+                }
+                rowWords[row] = word;
+                nodesPerDepth[row]++;
+                if (row == rows - 1) {
+                    if (hasNewColumnWords()) {
+                        return true;
+                    }
+                    undo(cell);
+                    continue;
+                }
+            }
+            cell++;
+            openCell(cell, col == columns - 1 ? PrefixIndex.ROOT : rowNode);
+        }
+    }
+
+    private void openCell(int cell, int rowNode) {
+        nextLetter[cell] = 0;
+        rowNodes[cell] = rowNode;
+    }
+
+    /**
+     * Places the next letter, in alphabetical order, that keeps the row and the column
+     * completable and is still in the budget. Returns false when no letter is left.
+     */
+    private boolean placeNextLetter(int cell) {
+        int row = cell / columns;
+        int col = cell % columns;
+        int rowNode = rowNodes[cell];
+        int columnNode = cursors[row][col];
+        for (int letter = nextLetter[cell]; letter < alphabetSize; letter++) {
+            int nextRowNode = rowIndex.childByCode(rowNode, letter);
+            if (!isLive(rowIndex, rowMask, nextRowNode)) {
+                continue;
+            }
+            int nextColumnNode = columnIndex.childByCode(columnNode, letter);
+            if (!isLive(columnIndex, columnMask, nextColumnNode)) {
+                pruneCounts[SolverMetrics.Prune.COLUMN.ordinal()]++;
+                continue;
+            }
+            if (!remainingLetters.removeCode(letter, 1)) {
+                pruneCounts[SolverMetrics.Prune.LETTER_BUDGET.ordinal()]++;
+                continue;
+            }
+            nextLetter[cell] = letter + 1;
+            cells[cell] = letter;
+            cursors[row + 1][col] = nextColumnNode;
+            return true;
+        }
+        nextLetter[cell] = alphabetSize;
+        return false;
+    }
+
+    private static boolean isLive(PrefixIndex index, CandidateMask mask, int node) {
+        return node != PrefixIndex.NO_NODE
+                && (mask == null || mask.count(index.rangeStart(node), index.rangeEnd(node)) > 0);
+    }
+
+    private void undo(int cell) {
+        remainingLetters.addCode(cells[cell], 1);
+    }
+
+    private boolean isNewRowWord(int row, int word) {
+        for (int above = 0; above < row; above++) {
+            if (rowWords[above] == word) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the completed columns are different words, and different from the rows
+     * when rows and columns come from the same index
+     */
+    private boolean hasNewColumnWords() {
+        for (int col = 0; col < columns; col++) {
+            int word = columnIndex.rangeStart(cursors[rows][col]);
+            for (int left = 0; left < col; left++) {
+                if (columnWords[left] == word) {
+                    return false;
+                }
+            }
+            if (sharedIndex && !isNewRowWord(rows, word)) {
+                return false;
+            }
+            columnWords[col] = word;
+        }
+        return true;
+    }
+
+    /**
+     * Copies the rows of the current rectangle out as words
+     */
+    List<String> rows() {
+        List<String> words = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            words.add(rowIndex.word(rowWords[row]));
+        }
+        return words;
+    }
+
+    /**
+     * Copies the columns of the current rectangle out as words
+     */
+    List<String> columns() {
+        List<String> words = new ArrayList<>(columns);
+        for (int col = 0; col < columns; col++) {
+            words.add(columnIndex.word(columnWords[col]));
+        }
+        return words;
+    }
+}
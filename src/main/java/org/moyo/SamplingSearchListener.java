@@ -0,0 +1,43 @@
+package org.moyo;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forwards one in every interval node and backtrack events to the delegate, and every solution.
+ * Useful for progress tracing on long searches without paying for an event per node.
+ */
+public class SamplingSearchListener implements SearchListener {
+
+    private final SearchListener delegate;
+    private final long interval;
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong backtracks = new AtomicLong();
+
+    public SamplingSearchListener(SearchListener delegate, long interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Sampling interval must be at least 1");
+        }
+        this.delegate = delegate;
+        this.interval = interval;
+    }
+
+    @Override
+    public void onNodeVisited(int depth) {
+        if (nodes.incrementAndGet() % interval == 0) {
+            delegate.onNodeVisited(depth);
+        }
+    }
+
+    @Override
+    public void onBacktrack(int depth) {
+        if (backtracks.incrementAndGet() % interval == 0) {
+            delegate.onBacktrack(depth);
+        }
+    }
+
+    @Override
+    public void onSolution(List<String> square) {
+        delegate.onSolution(square);
+    }
+}
@@ -0,0 +1,30 @@
+package org.moyo;
+
+import java.util.List;
+
+/**
+ * Receives events from the word square search, for tracing and diagnostics.
+ * Every method defaults to doing nothing, and the search skips the calls entirely while
+ * NONE is installed, so diagnostics cost nothing unless a listener is set.
+ * Listeners given to the parallel search are called from several threads at once.
+ */
+public interface SearchListener {
+
+    SearchListener NONE = new SearchListener() {
+    };
+
+    /**
+     * A word was placed in the row at this depth
+     */
+    default void onNodeVisited(int depth) {
+    }
+
+    /**
+     * Every candidate for the row at this depth was tried, so the search steps back a row
+     */
+    default void onBacktrack(int depth) {
+    }
+
+    default void onSolution(List<String> square) {
+    }
+}
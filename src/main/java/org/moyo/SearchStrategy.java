@@ -0,0 +1,32 @@
+package org.moyo;
+
+/**
+ * How the square search charges letters to the budget, and in which order it fills the grid.
+ */
+public enum SearchStrategy {
+
+    /**
+     * Each placed row debits its whole word, so letters it shares with later columns
+     * are only checked once those rows are placed.
+     */
+    ROWS,
+
+    /**
+     * Uses row[i] == column[i]: placing row i fixes its diagonal cell and, by symmetry, the
+     * cells to its right and below it, so the diagonal letter is debited once and every
+     * letter to its right twice. When the letters exactly fill the grid, the letters left
+     * with an odd count must also fit on the remaining diagonal cells. Finds the same
+     * squares in the same order as ROWS, but prunes much earlier.
+     */
+    SYMMETRIC_PAIRS,
+
+    /**
+     * Fills slots instead of rows, slot i being row i and column i, which hold the same word.
+     * Placing a word fixes the letter every other open slot needs at the slot's position, so
+     * the candidates of each open slot are narrowed with per-position letter bitsets, and the
+     * slot left with the fewest candidates is filled next; a slot left with none rejects the
+     * word at once. Letters are debited in pairs as with SYMMETRIC_PAIRS. Finds the same squares
+     * as ROWS, but usually a different one first. Top-N searches keep the row order.
+     */
+    MOST_CONSTRAINED
+}
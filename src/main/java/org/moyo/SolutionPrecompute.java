@@ -0,0 +1,107 @@
+package org.moyo;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fills a SolutionStore with every solvable letter multiset of one size, for daily puzzle
+ * generation. Enumerating the multisets themselves is hopeless, but every solvable multiset
+ * of exactly size * size letters is the letters of some square, so the job enumerates the
+ * squares of the dictionary instead, with a budget of every letter, and stores each square
+ * under its own letters unless they are already stored.
+ * <p>
+ * Squares come in search order, so the square stored for a multiset is the
+ * one a solve of those letters finds first. The job can be stopped with a cancellation token
+ * or a limit on the squares enumerated. It enumerates one first-row word at a time and
+ * records in the store where it stopped, so the next run of the size resumes there instead
+ * of going over the same squares again.
+ */
+public final class SolutionPrecompute {
+
+    /**
+     * Squares enumerated, and the multisets among them that were newly stored
+     */
+    public record Summary(long squares, long stored, boolean completed, long millis) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d squares enumerated, %d new puzzles stored in %dms%s",
+                    squares, stored, millis, completed ? "" : " (stopped before the end; run again to resume)");
+        }
+    }
+
+    private final DictionarySnapshot dictionary;
+    private final SolutionStore store;
+
+    public SolutionPrecompute(DictionarySnapshot dictionary, SolutionStore store) {
+        this.dictionary = dictionary;
+        this.store = store;
+    }
+
+    /**
+     * Enumerates up to maxSquares squares of the size, from where the last run stopped, and
+     * stores their multisets. The summary is completed once every square has been enumerated.
+     */
+    public Summary run(int size, int maxSquares, CancellationToken token) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (maxSquares <= 0) {
+            throw new IllegalArgumentException("maxSquares must be positive");
+        }
+        long start = System.nanoTime();
+        long hash = dictionary.getContentHash();
+        Alphabet alphabet = dictionary.getAlphabet();
+        PrefixIndex index = dictionary.getPrefixIndexForSize(size);
+        LetterCounts everyLetter = new LetterCounts(alphabet);
+        for (int code = 0; code < alphabet.size(); code++) {
+            everyLetter.addCode(code, size * size);
+        }
+
+        SolutionStore.PrecomputePosition resumeAt = store.precomputePosition(hash, size);
+        int lastFirstRow = index.rangeEnd(PrefixIndex.ROOT);
+        int firstRow = resumeAt.firstRow();
+        // Squares of the first-row word an earlier run already went through, and this run so far
+        long skip = resumeAt.squares();
+        long rowSquares = 0;
+        long squares = 0;
+        long stored = 0;
+        try {
+            rows:
+            for (; firstRow < lastFirstRow && !token.isCancelled(); firstRow++, skip = 0, rowSquares = 0) {
+                SquareSearch search = new SquareSearch(index, size, everyLetter.copy(), firstRow, firstRow + 1);
+                search.setStopCondition(token::isCancelled);
+                while (search.next()) {
+                    if (rowSquares < skip) {
+                        rowSquares++;
+                        continue;
+                    }
+                    // Only stop at the limit once another square shows the enumeration is not over
+                    if (squares == maxSquares) {
+                        break rows;
+                    }
+                    List<String> square = search.square();
+                    if (store.put(hash, size, LetterCounts.of(alphabet, String.join("", square)), square)) {
+                        stored++;
+                    }
+                    squares++;
+                    rowSquares++;
+                }
+                if (search.wasStopped()) {
+                    break;
+                }
+            }
+        } finally {
+            store.setPrecomputePosition(hash, size, new SolutionStore.PrecomputePosition(firstRow, Math.max(skip, rowSquares)));
+        }
+        boolean completed = firstRow == lastFirstRow;
+        return new Summary(squares, stored, completed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Same as run, without a limit on the squares enumerated
+     */
+    public Summary run(int size, CancellationToken token) {
+        return run(size, Integer.MAX_VALUE, token);
+    }
+}
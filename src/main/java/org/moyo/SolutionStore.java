@@ -0,0 +1,376 @@
+package org.moyo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded, append-only store of solved puzzles that survives restarts, keyed by dictionary
+ * content hash, size and the sorted letter multiset. Unsolvable puzzles are stored too, as an
+ * empty square.
+ * <p>
+ * solutions.dat holds a header and the records, each a length and a CRC32 followed by the key
+ * and the rows. solutions.idx holds one fixed-size entry per record: key hash, dictionary
+ * hash and record offset. Opening reads only the index into memory; lookups then read the
+ * record from a memory mapping of the data file. A record is appended before its index
+ * entry, so after a crash opening re-indexes the records the index missed and cuts off a
+ * record that was only partly written.
+ * <p>
+ * precompute.pos holds where each precompute stopped, per dictionary hash and size, so the
+ * next run can resume there. It is small and rewritten whole through a temporary file.
+ * <p>
+ * Since the dictionary hash is part of the key, a changed dictionary never gets the squares
+ * of the old one; entriesFor tells how many entries a dictionary has.
+ */
+public final class SolutionStore implements Closeable {
+
+    static final String DATA_FILE = "solutions.dat";
+    static final String INDEX_FILE = "solutions.idx";
+    static final String POSITION_FILE = "precompute.pos";
+    static final int MAGIC = 0x57535153; // "WSQS"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int INDEX_ENTRY_BYTES = 24;
+    private static final int POSITION_ENTRY_BYTES = 24;
+
+    /**
+     * Where a precompute stopped: the id of the first-row word it was enumerating the squares
+     * of, and how many of that word's squares it had gone through
+     */
+    public record PrecomputePosition(int firstRow, long squares) {
+
+        public static final PrecomputePosition START = new PrecomputePosition(0, 0);
+    }
+
+    private record PositionKey(long dictionaryHash, int size) {
+    }
+
+    private final Path directory;
+    private final FileChannel data;
+    private final FileChannel index;
+    // Record offsets by key hash; a full key comparison on read guards against collisions
+    private final Map<Long, Long> offsets = new HashMap<>();
+    private final Map<Long, Integer> entriesPerDictionary = new HashMap<>();
+    private final Map<PositionKey, PrecomputePosition> positions = new LinkedHashMap<>();
+    private long dataSize;
+    private long indexSize;
+    private MappedByteBuffer mapped;
+
+    private SolutionStore(Path directory, FileChannel data, FileChannel index) {
+        this.directory = directory;
+        this.data = data;
+        this.index = index;
+    }
+
+    /**
+     * Opens the store in the directory, creating it if needed
+     */
+    public static SolutionStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel data = FileChannel.open(directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index;
+        try {
+            index = FileChannel.open(directory.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        SolutionStore store = new SolutionStore(directory, data, index);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        if (data.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(data, header, 0);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (data.read(header, 0) != HEADER_BYTES || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a solution store: " + directory);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported solution store version " + header.getInt(4) + ": " + directory);
+        }
+        dataSize = data.size();
+
+        // A record is written before its entry, so only a torn last entry can be invalid
+        long lastOffset = -1;
+        indexSize = index.size() - index.size() % INDEX_ENTRY_BYTES;
+        ByteBuffer entries = ByteBuffer.allocate((int) indexSize);
+        readFully(index, entries, 0);
+        for (int position = 0; position < indexSize; position += INDEX_ENTRY_BYTES) {
+            long offset = entries.getLong(position + 16);
+            if (offset < HEADER_BYTES || offset >= dataSize) {
+                throw new IOException("Corrupt solution store index: " + directory);
+            }
+            register(entries.getLong(position), entries.getLong(position + 8), offset);
+            lastOffset = Math.max(lastOffset, offset);
+        }
+        index.truncate(indexSize);
+        long indexedEnd = lastOffset < 0 ? HEADER_BYTES : recordEnd(lastOffset);
+        if (indexedEnd < 0) {
+            throw new IOException("Corrupt solution store record at " + lastOffset + ": " + directory);
+        }
+
+        // Records appended after the last index entry was written
+        long position = indexedEnd;
+        while (position < dataSize) {
+            long end = recordEnd(position);
+            if (end < 0) {
+                data.truncate(position);
+                dataSize = position;
+                break;
+            }
+            Record record = readRecord(position);
+            appendIndexEntry(keyHash(record.dictionaryHash(), record.size(), record.letters()), record.dictionaryHash(), position);
+            position = end;
+        }
+        mapped = data.map(FileChannel.MapMode.READ_ONLY, 0, dataSize);
+        loadPositions();
+    }
+
+    private void loadPositions() throws IOException {
+        Path file = directory.resolve(POSITION_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(file));
+        for (int position = 0; position + POSITION_ENTRY_BYTES <= entries.capacity(); position += POSITION_ENTRY_BYTES) {
+            positions.put(new PositionKey(entries.getLong(position), entries.getInt(position + 8)),
+                    new PrecomputePosition(entries.getInt(position + 12), entries.getLong(position + 16)));
+        }
+    }
+
+    private record Record(long dictionaryHash, int size, String letters, List<String> square) {
+    }
+
+    /**
+     * Returns the end of the complete, intact record at offset, or -1 if it is cut off or corrupt
+     */
+    private long recordEnd(long offset) throws IOException {
+        if (offset < HEADER_BYTES || offset + RECORD_HEADER_BYTES > dataSize) {
+            return -1;
+        }
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(data, recordHeader, offset);
+        int length = recordHeader.getInt(0);
+        if (length < 0 || offset + RECORD_HEADER_BYTES + length > dataSize) {
+            return -1;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(data, payload, offset + RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(payload.flip());
+        return (int) crc.getValue() == recordHeader.getInt(4) ? offset + RECORD_HEADER_BYTES + length : -1;
+    }
+
+    private Record readRecord(long offset) throws IOException {
+        if (mapped == null || offset + RECORD_HEADER_BYTES > mapped.capacity()
+                || offset + RECORD_HEADER_BYTES + mapped.getInt((int) offset) > mapped.capacity()) {
+            mapped = data.map(FileChannel.MapMode.READ_ONLY, 0, dataSize);
+        }
+        int length = mapped.getInt((int) offset);
+        ByteBuffer payload = mapped.slice((int) offset + RECORD_HEADER_BYTES, length);
+        long dictionaryHash = payload.getLong();
+        int size = payload.getInt();
+        String letters = readString(payload);
+        int rows = payload.getInt();
+        List<String> square = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            square.add(readString(payload));
+        }
+        return new Record(dictionaryHash, size, letters, List.copyOf(square));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the stored square of the puzzle, empty if it was stored as unsolvable, or
+     * nothing if it is not stored
+     */
+    public synchronized Optional<List<String>> get(long dictionaryHash, int size, LetterCounts letters) {
+        String key = letters.toSortedString();
+        Long offset = offsets.get(keyHash(dictionaryHash, size, key));
+        if (offset == null) {
+            return Optional.empty();
+        }
+        try {
+            Record record = readRecord(offset);
+            boolean matches = record.dictionaryHash() == dictionaryHash && record.size() == size && record.letters().equals(key);
+            return matches ? Optional.of(record.square()) : Optional.empty();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read solution store: " + directory, e);
+        }
+    }
+
+    /**
+     * Checks if the puzzle is stored, without reading its record
+     */
+    public synchronized boolean contains(long dictionaryHash, int size, LetterCounts letters) {
+        return offsets.containsKey(keyHash(dictionaryHash, size, letters.toSortedString()));
+    }
+
+    /**
+     * Appends the square of the puzzle, empty when it has none, unless the puzzle is already
+     * stored. Returns whether it was added.
+     */
+    public synchronized boolean put(long dictionaryHash, int size, LetterCounts letters, List<String> square) {
+        String key = letters.toSortedString();
+        long keyHash = keyHash(dictionaryHash, size, key);
+        if (offsets.containsKey(keyHash)) {
+            return false;
+        }
+        List<byte[]> strings = new ArrayList<>(square.size() + 1);
+        strings.add(key.getBytes(StandardCharsets.UTF_8));
+        square.forEach(row -> strings.add(row.getBytes(StandardCharsets.UTF_8)));
+        int length = Long.BYTES + 2 * Integer.BYTES + strings.stream().mapToInt(bytes -> Integer.BYTES + bytes.length).sum();
+        // Records are read through a single mapping, which a ByteBuffer limits to 2 GB
+        if (dataSize + RECORD_HEADER_BYTES + length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Solution store is full: " + directory);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        record.position(RECORD_HEADER_BYTES);
+        record.putLong(dictionaryHash).putInt(size);
+        putBytes(record, strings.get(0));
+        record.putInt(square.size());
+        for (int row = 1; row < strings.size(); row++) {
+            putBytes(record, strings.get(row));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(RECORD_HEADER_BYTES, length));
+        record.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+
+        try {
+            long offset = dataSize;
+            writeFully(data, record, offset);
+            dataSize += record.capacity();
+            appendIndexEntry(keyHash, dictionaryHash, offset);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write solution store: " + directory, e);
+        }
+        return true;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private void appendIndexEntry(long keyHash, long dictionaryHash, long offset) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).putLong(keyHash).putLong(dictionaryHash).putLong(offset).flip();
+        writeFully(index, entry, indexSize);
+        indexSize += INDEX_ENTRY_BYTES;
+        register(keyHash, dictionaryHash, offset);
+    }
+
+    private void register(long keyHash, long dictionaryHash, long offset) {
+        if (offsets.putIfAbsent(keyHash, offset) == null) {
+            entriesPerDictionary.merge(dictionaryHash, 1, Integer::sum);
+        }
+    }
+
+    static long keyHash(long dictionaryHash, int size, String letters) {
+        return DictionarySnapshot.mix(DictionarySnapshot.mix(dictionaryHash) * 31 + size) ^ DictionarySnapshot.stringHash(letters);
+    }
+
+    /**
+     * Returns where the last precompute of the size stopped for the dictionary, or START
+     */
+    public synchronized PrecomputePosition precomputePosition(long dictionaryHash, int size) {
+        return positions.getOrDefault(new PositionKey(dictionaryHash, size), PrecomputePosition.START);
+    }
+
+    /**
+     * Records where a precompute of the size stopped for the dictionary. The puzzles it stored
+     * are flushed first, so the position never runs ahead of them.
+     */
+    public synchronized void setPrecomputePosition(long dictionaryHash, int size, PrecomputePosition position) {
+        positions.put(new PositionKey(dictionaryHash, size), position);
+        ByteBuffer entries = ByteBuffer.allocate(positions.size() * POSITION_ENTRY_BYTES);
+        positions.forEach((key, value) -> entries.putLong(key.dictionaryHash()).putInt(key.size())
+                .putInt(value.firstRow()).putLong(value.squares()));
+        Path file = directory.resolve(POSITION_FILE);
+        Path temporary = directory.resolve(POSITION_FILE + ".tmp");
+        try {
+            flush();
+            Files.write(temporary, entries.array());
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write solution store: " + directory, e);
+        }
+    }
+
+    /**
+     * Number of puzzles stored for every dictionary together
+     */
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    /**
+     * Number of puzzles stored for the dictionary with the content hash; 0 for a store filled
+     * with another dictionary, which is how a changed dictionary shows
+     */
+    public synchronized int entriesFor(long dictionaryHash) {
+        return entriesPerDictionary.getOrDefault(dictionaryHash, 0);
+    }
+
+    /**
+     * Forces everything appended so far to disk
+     */
+    public synchronized void flush() throws IOException {
+        data.force(false);
+        index.force(false);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try (data; index) {
+            if (data.isOpen() && index.isOpen()) {
+                flush();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of solution store: " + position);
+            }
+            position += read;
+        }
+    }
+}
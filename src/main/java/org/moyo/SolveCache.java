@@ -0,0 +1,100 @@
+package org.moyo;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded LRU cache of solved squares, keyed by dictionary version, size and the sorted
+ * letter multiset, so any anagram of an earlier sequence is answered without searching again.
+ * The search strategy is part of the key, as MOST_CONSTRAINED can find a different square first.
+ * Unsolvable inputs are cached too, as an empty square.
+ * Every dictionary load gets a new version, so entries of a replaced dictionary are never
+ * returned; invalidate() also frees them at once.
+ */
+public class SolveCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    record Key(long dictionaryVersion, int size, String letters, SearchStrategy strategy) {
+    }
+
+    private final int maxEntries;
+    private final Map<Key, List<String>> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SolveCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public SolveCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+                if (size() > SolveCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    static Key key(long dictionaryVersion, int size, LetterCounts letters, SearchStrategy strategy) {
+        return new Key(dictionaryVersion, size, letters.toSortedString(), strategy);
+    }
+
+    synchronized Optional<List<String>> get(Key key) {
+        List<String> square = entries.get(key);
+        if (square == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(square);
+    }
+
+    synchronized void put(Key key, List<String> square) {
+        entries.put(key, List.copyOf(square));
+    }
+
+    /**
+     * Drops every entry, keeping the hit and miss counts
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "entries " + entries.size() + "/" + maxEntries + ", hits " + hits + ", misses " + misses
+                + ", evictions " + evictions;
+    }
+}
@@ -0,0 +1,20 @@
+package org.moyo;
+
+import java.util.List;
+
+/**
+ * A solved square, empty when none was found, together with how the solve ended and its metrics
+ */
+public record SolveResult(List<String> square, SolveStatus status, SolverMetrics metrics) {
+
+    /**
+     * Result of a search that ran to completion
+     */
+    public SolveResult(List<String> square, SolverMetrics metrics) {
+        this(square, square.isEmpty() ? SolveStatus.NO_SOLUTION : SolveStatus.SOLVED, metrics);
+    }
+
+    public boolean isSolved() {
+        return !square.isEmpty();
+    }
+}
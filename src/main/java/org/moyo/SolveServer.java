@@ -0,0 +1,210 @@
+package org.moyo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Embedded HTTP endpoint for the solver, on the JDK's built-in HttpServer.
+ * <ul>
+ *   <li>GET /solve?size=4&amp;sequence=... returns the first square</li>
+ *   <li>GET /enumerate?size=4&amp;sequence=...&amp;max=10 returns up to max squares</li>
+ *   <li>GET /health</li>
+ * </ul>
+ * All requests share one solver, and so one dictionary and its per-length indexes.
+ * Each request runs on a virtual thread when the runtime has them (Java 21+), otherwise on
+ * a cached platform thread pool, and solves on that thread. At most maxConcurrent solves run
+ * at once; further requests get 503 straight away rather than queueing. Every solve gets the
+ * timeout as its time budget, so a search still running then stops and the request gets 504.
+ */
+public class SolveServer {
+
+    public static final int MAX_ENUMERATED = 1000;
+
+    private final WordSquareSolver solver;
+    private final Duration timeout;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    public SolveServer(WordSquareSolver solver, InetSocketAddress address, Duration timeout, int maxConcurrent) throws IOException {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.solver = solver;
+        this.timeout = timeout;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/solve", exchange -> handle(exchange, this::solve));
+        server.createContext("/enumerate", exchange -> handle(exchange, this::enumerate));
+        server.createContext("/health", exchange -> respond(exchange, 200, "{\"status\":\"ok\"}"));
+    }
+
+    /**
+     * One virtual thread per task where available, looked up reflectively so the code still runs on Java 17
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "solve-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Waits up to the timeout for running solves, then closes the server and shuts the threads
+     * down. HttpServer.stop(delay) can wait the whole delay even when no exchange is open, so
+     * the wait is on the solve permits instead and the server closes at once.
+     */
+    public void stop() {
+        try {
+            if (permits.tryAcquire(maxConcurrent, timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                permits.release(maxConcurrent);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private interface Operation {
+        String run(Map<String, String> query) throws TimeoutException;
+    }
+
+    private void handle(HttpExchange exchange, Operation operation) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, Json.error("Only GET is supported"));
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, Json.error("Too many concurrent solves"));
+            return;
+        }
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            respond(exchange, 200, operation.run(query));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, Json.error(e.getMessage()));
+        } catch (TimeoutException e) {
+            respond(exchange, 504, Json.error("Solve did not finish within " + timeout.toMillis() + "ms"));
+        } catch (RuntimeException e) {
+            respond(exchange, 500, Json.error(e.getMessage()));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private String solve(Map<String, String> query) throws TimeoutException {
+        int size = intParameter(query, "size");
+        String sequence = requiredParameter(query, "sequence");
+        long start = System.nanoTime();
+        SolveResult result = solver.solve(size, sequence, timeout);
+        if (result.status() == SolveStatus.TIMED_OUT) {
+            throw new TimeoutException();
+        }
+        return "{\"size\":" + size
+                + ",\"sequence\":" + Json.quote(sequence)
+                + ",\"solved\":" + result.isSolved()
+                + ",\"square\":" + Json.array(result.square())
+                + ",\"status\":" + Json.quote(result.status().name())
+                + ",\"nodes\":" + result.metrics().getNodesExpanded()
+                + ",\"millis\":" + String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1e6)
+                + "}";
+    }
+
+    private String enumerate(Map<String, String> query) throws TimeoutException {
+        int size = intParameter(query, "size");
+        String sequence = requiredParameter(query, "sequence");
+        int max = query.containsKey("max") ? intParameter(query, "max") : 10;
+        if (max < 1 || max > MAX_ENUMERATED) {
+            throw new IllegalArgumentException("max must be between 1 and " + MAX_ENUMERATED);
+        }
+        EnumerationResult result = solver.solveAll(size, sequence, max, timeout, CancellationToken.NONE);
+        if (result.status() == SolveStatus.TIMED_OUT) {
+            throw new TimeoutException();
+        }
+        List<List<String>> squares = result.squares();
+        StringBuilder json = new StringBuilder("{\"size\":").append(size)
+                .append(",\"sequence\":").append(Json.quote(sequence))
+                .append(",\"squares\":[");
+        for (int i = 0; i < squares.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(Json.array(squares.get(i)));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String requiredParameter(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> query, String name) {
+        try {
+            return Integer.parseInt(requiredParameter(query, name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a valid integer");
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
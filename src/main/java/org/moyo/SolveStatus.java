@@ -0,0 +1,25 @@
+package org.moyo;
+
+/**
+ * How a solve ended
+ */
+public enum SolveStatus {
+
+    SOLVED,
+
+    /**
+     * The search was exhausted, or the letters were rejected up front, without finding a square
+     */
+    NO_SOLUTION,
+
+    /**
+     * The time budget ran out, so the search stopped early; any results cover only the part searched
+     */
+    TIMED_OUT,
+
+    /**
+     * The cancellation token was cancelled, or the solving thread interrupted, before the search
+     * finished; as with TIMED_OUT, any results cover only the part searched
+     */
+    CANCELLED
+}
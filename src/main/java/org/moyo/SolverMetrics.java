@@ -0,0 +1,174 @@
+package org.moyo;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of a single solve: nodes expanded per depth, how often each prune fired,
+ * the size of the candidate set after filtering, and wall and CPU time per phase.
+ * CPU time is that of the solving thread, so it excludes pool threads in a parallel solve.
+ */
+public class SolverMetrics {
+
+    public enum Phase { PARSE, FILTER, INDEX, SEARCH }
+
+    /**
+     * PREFIX counts the words a row's prefix excluded from its candidate range,
+     * LETTER_BUDGET the candidates rejected for lack of letters, COLUMN the candidates
+     * that would have left a column that no word can complete, PARITY the candidates
+     * that left more odd letter counts, or letters required on the diagonal, than diagonal cells,
+     * and SCORE_BOUND the candidates of a ranked search that could not beat the scores found.
+     */
+    public enum Prune { PREFIX, LETTER_BUDGET, COLUMN, PARITY, SCORE_BOUND }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long[] nodesPerDepth;
+    private final long[] prunes = new long[Prune.values().length];
+    private final Map<Phase, Long> wallNanos = new EnumMap<>(Phase.class);
+    private final Map<Phase, Long> cpuNanos = new EnumMap<>(Phase.class);
+    private int candidateWords;
+    private boolean cacheHit;
+    private boolean storeHit;
+    private String infeasibleReason;
+
+    public SolverMetrics(int size) {
+        this.nodesPerDepth = new long[size];
+    }
+
+    /**
+     * Runs the work, adding its wall and CPU time to the phase
+     */
+    <T> T time(Phase phase, Supplier<T> work) {
+        long wallStart = System.nanoTime();
+        long cpuStart = cpuTime();
+        try {
+            return work.get();
+        } finally {
+            wallNanos.merge(phase, System.nanoTime() - wallStart, Long::sum);
+            cpuNanos.merge(phase, cpuTime() - cpuStart, Long::sum);
+        }
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * Adds counters collected by one search; the parallel search calls this from several threads
+     */
+    synchronized void addSearchCounts(long[] nodes, long[] pruneCounts) {
+        for (int depth = 0; depth < nodes.length && depth < nodesPerDepth.length; depth++) {
+            nodesPerDepth[depth] += nodes[depth];
+        }
+        for (int i = 0; i < pruneCounts.length; i++) {
+            prunes[i] += pruneCounts[i];
+        }
+    }
+
+    void setCandidateWords(int candidateWords) {
+        this.candidateWords = candidateWords;
+    }
+
+    public int getCandidateWords() {
+        return candidateWords;
+    }
+
+    void setInfeasibleReason(String infeasibleReason) {
+        this.infeasibleReason = infeasibleReason;
+    }
+
+    /**
+     * Why the letters were rejected before searching, or null if the search ran
+     */
+    public String getInfeasibleReason() {
+        return infeasibleReason;
+    }
+
+    void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    /**
+     * True when the square came from the solve cache and no search ran
+     */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    void setStoreHit(boolean storeHit) {
+        this.storeHit = storeHit;
+    }
+
+    /**
+     * True when the square came from the persistent solution store and no search ran
+     */
+    public boolean isStoreHit() {
+        return storeHit;
+    }
+
+    public synchronized long[] getNodesExpandedPerDepth() {
+        return nodesPerDepth.clone();
+    }
+
+    public synchronized long getNodesExpanded() {
+        return Arrays.stream(nodesPerDepth).sum();
+    }
+
+    public synchronized long getPruneCount(Prune prune) {
+        return prunes[prune.ordinal()];
+    }
+
+    /**
+     * Fraction of the candidates tried in the search that this prune rejected.
+     * PREFIX is not a rejection of a tried candidate and always reports 0.
+     */
+    public synchronized double getPruneRate(Prune prune) {
+        if (prune == Prune.PREFIX) {
+            return 0;
+        }
+        long tried = getNodesExpanded() + prunes[Prune.LETTER_BUDGET.ordinal()] + prunes[Prune.COLUMN.ordinal()]
+                + prunes[Prune.PARITY.ordinal()] + prunes[Prune.SCORE_BOUND.ordinal()];
+        return tried == 0 ? 0 : (double) prunes[prune.ordinal()] / tried;
+    }
+
+    public long getWallNanos(Phase phase) {
+        return wallNanos.getOrDefault(phase, 0L);
+    }
+
+    public long getCpuNanos(Phase phase) {
+        return cpuNanos.getOrDefault(phase, 0L);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder summary = new StringBuilder();
+        if (cacheHit) {
+            summary.append("answered from cache\n");
+        }
+        if (storeHit) {
+            summary.append("answered from solution store\n");
+        }
+        if (infeasibleReason != null) {
+            summary.append("rejected before search: ").append(infeasibleReason).append("\n");
+        }
+        summary.append("candidate words: ").append(candidateWords)
+                .append("\nnodes expanded: ").append(getNodesExpanded())
+                .append(" per depth ").append(Arrays.toString(nodesPerDepth));
+        for (Prune prune : Prune.values()) {
+            summary.append("\n").append(prune).append(" prunes: ").append(getPruneCount(prune));
+            if (prune != Prune.PREFIX) {
+                summary.append(String.format(" (%.1f%%)", 100 * getPruneRate(prune)));
+            }
+        }
+        for (Phase phase : Phase.values()) {
+            summary.append(String.format("%n%s: %.3fms wall, %.3fms cpu", phase,
+                    getWallNanos(phase) / 1e6, getCpuNanos(phase) / 1e6));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package org.moyo;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the metrics of every solve and exposes them as an MXBean.
+ */
+public class SolverStatistics implements SolverStatisticsMXBean {
+
+    public static final String OBJECT_NAME = "org.moyo:type=SolverStatistics";
+
+    private long solveCount;
+    private long solvedCount;
+    private long cacheHitCount;
+    private long storeHitCount;
+    private long timedOutCount;
+    private long cancelledCount;
+    private long totalNodesExpanded;
+    private long totalSearchNanos;
+    private SolverMetrics last;
+
+    synchronized void record(SolveResult result) {
+        solveCount++;
+        if (result.isSolved()) {
+            solvedCount++;
+        }
+        if (result.metrics().isCacheHit()) {
+            cacheHitCount++;
+        }
+        if (result.metrics().isStoreHit()) {
+            storeHitCount++;
+        }
+        if (result.status() == SolveStatus.TIMED_OUT) {
+            timedOutCount++;
+        } else if (result.status() == SolveStatus.CANCELLED) {
+            cancelledCount++;
+        }
+        totalNodesExpanded += result.metrics().getNodesExpanded();
+        totalSearchNanos += result.metrics().getWallNanos(SolverMetrics.Phase.SEARCH);
+        last = result.metrics();
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under OBJECT_NAME, replacing any previous one
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new RuntimeException("Failed to register solver statistics MBean", e);
+        }
+    }
+
+    @Override
+    public synchronized long getSolveCount() {
+        return solveCount;
+    }
+
+    @Override
+    public synchronized long getSolvedCount() {
+        return solvedCount;
+    }
+
+    @Override
+    public synchronized long getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    @Override
+    public synchronized long getStoreHitCount() {
+        return storeHitCount;
+    }
+
+    @Override
+    public synchronized long getTimedOutCount() {
+        return timedOutCount;
+    }
+
+    @Override
+    public synchronized long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    @Override
+    public synchronized long getTotalNodesExpanded() {
+        return totalNodesExpanded;
+    }
+
+    @Override
+    public synchronized long getTotalSearchMillis() {
+        return totalSearchNanos / 1_000_000;
+    }
+
+    @Override
+    public synchronized int getLastCandidateWords() {
+        return last == null ? 0 : last.getCandidateWords();
+    }
+
+    @Override
+    public synchronized long getLastNodesExpanded() {
+        return last == null ? 0 : last.getNodesExpanded();
+    }
+
+    @Override
+    public synchronized long[] getLastNodesExpandedPerDepth() {
+        return last == null ? new long[0] : last.getNodesExpandedPerDepth();
+    }
+
+    @Override
+    public synchronized Map<String, Long> getLastPruneCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (SolverMetrics.Prune prune : SolverMetrics.Prune.values()) {
+            counts.put(prune.name(), last == null ? 0 : last.getPruneCount(prune));
+        }
+        return counts;
+    }
+
+    @Override
+    public synchronized Map<String, Double> getLastPhaseWallMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (SolverMetrics.Phase phase : SolverMetrics.Phase.values()) {
+            millis.put(phase.name(), last == null ? 0 : last.getWallNanos(phase) / 1e6);
+        }
+        return millis;
+    }
+
+    @Override
+    public synchronized Map<String, Double> getLastPhaseCpuMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (SolverMetrics.Phase phase : SolverMetrics.Phase.values()) {
+            millis.put(phase.name(), last == null ? 0 : last.getCpuNanos(phase) / 1e6);
+        }
+        return millis;
+    }
+
+    @Override
+    public synchronized void reset() {
+        solveCount = 0;
+        solvedCount = 0;
+        cacheHitCount = 0;
+        storeHitCount = 0;
+        timedOutCount = 0;
+        cancelledCount = 0;
+        totalNodesExpanded = 0;
+        totalSearchNanos = 0;
+        last = null;
+    }
+}
@@ -0,0 +1,39 @@
+package org.moyo;
+
+import java.util.Map;
+
+/**
+ * JMX view of the solves run by a long-lived solver: running totals and the metrics of the last solve
+ */
+public interface SolverStatisticsMXBean {
+
+    long getSolveCount();
+
+    long getSolvedCount();
+
+    long getCacheHitCount();
+
+    long getStoreHitCount();
+
+    long getTimedOutCount();
+
+    long getCancelledCount();
+
+    long getTotalNodesExpanded();
+
+    long getTotalSearchMillis();
+
+    int getLastCandidateWords();
+
+    long getLastNodesExpanded();
+
+    long[] getLastNodesExpandedPerDepth();
+
+    Map<String, Long> getLastPruneCounts();
+
+    Map<String, Double> getLastPhaseWallMillis();
+
+    Map<String, Double> getLastPhaseCpuMillis();
+
+    void reset();
+}
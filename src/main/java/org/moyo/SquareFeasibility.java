@@ -0,0 +1,65 @@
+package org.moyo;
+
+/**
+ * Letter-count feasibility of a symmetric word square, decided in one pass over the alphabet before any search.
+ * A square of size n uses exactly n * n letters: n on the diagonal, and every other letter
+ * twice, as cell (i, j) equals cell (j, i). So when the letters exactly fill the grid, every
+ * letter with an odd count must appear on the diagonal, and there can be at most n of them.
+ * With fewer letters no square fits; with more, any subset may be used and nothing is derived.
+ */
+public final class SquareFeasibility {
+
+    private final boolean feasible;
+    private final String reason;
+    private final LetterCounts requiredDiagonal;
+
+    private SquareFeasibility(boolean feasible, String reason, LetterCounts requiredDiagonal) {
+        this.feasible = feasible;
+        this.reason = reason;
+        this.requiredDiagonal = requiredDiagonal;
+    }
+
+    public static SquareFeasibility check(int size, LetterCounts letters) {
+        int cells = size * size;
+        if (letters.total() < cells) {
+            return infeasible(letters.total() + " letters cannot fill " + cells + " cells");
+        }
+        if (letters.total() > cells) {
+            return new SquareFeasibility(true, null, null);
+        }
+
+        LetterCounts requiredDiagonal = new LetterCounts(letters.getAlphabet());
+        for (int letter = 0; letter < letters.getAlphabet().size(); letter++) {
+            if ((letters.count(letter) & 1) == 1) {
+                requiredDiagonal.addCode(letter, 1);
+            }
+        }
+        int odd = requiredDiagonal.total();
+        if (odd > size) {
+            return infeasible(odd + " letters have an odd count but the diagonal has only " + size + " cells");
+        }
+        return new SquareFeasibility(true, null, requiredDiagonal);
+    }
+
+    private static SquareFeasibility infeasible(String reason) {
+        return new SquareFeasibility(false, reason, null);
+    }
+
+    public boolean isFeasible() {
+        return feasible;
+    }
+
+    /**
+     * Why no square can exist, or null when the letters are feasible
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Letters that must appear on the diagonal, or null when the letters do not exactly fill the grid
+     */
+    public LetterCounts getRequiredDiagonal() {
+        return requiredDiagonal;
+    }
+}
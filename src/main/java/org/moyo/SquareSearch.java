@@ -0,0 +1,787 @@
+package org.moyo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Mutable state of one depth-first word square search over a PrefixIndex.
+ * The grid, the per-column trie cursors and the candidate positions of every row are
+ * preallocated, so placing and undoing a row only writes into existing arrays.
+ * The search is iterative with an explicit stack, which also makes it resumable:
+ * each call to next() continues from the previously returned square.
+ * <p>
+ * With word scores the search turns into a branch and bound: every row tries its best
+ * scoring candidates first, and a row is rejected as soon as the score of the rows placed,
+ * plus the best word every unplaced row could still get, cannot beat the score floor.
+ * <p>
+ * With the MOST_CONSTRAINED strategy the rows are not filled top to bottom: every depth fills
+ * the slot, row and column i, with the fewest candidates left, tracked as one bitset per slot
+ * and depth.
+ */
+class SquareSearch {
+
+    // The stop condition is polled once every STOP_CHECK_INTERVAL placements
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    private final PrefixIndex index;
+    private final Alphabet alphabet;
+    private final int size;
+    private final LetterCounts remainingLetters;
+    private final byte[] letterVectors;
+    private final byte[] letterCodes;
+
+    private final char[][] grid;
+    // cursors[row][col] is the trie node reached by column col after `row` letters
+    private final int[][] cursors;
+    private final int[] nextCandidate;
+    private final int[] endCandidate;
+    private final int[] placedWords;
+    private final int firstRowStart;
+    private final int firstRowEnd;
+
+    // Word ids the letter budget allows, when the index covers more words than the solve can use
+    private CandidateMask mask;
+    private SearchStrategy strategy = SearchStrategy.ROWS;
+    // orderedCandidates[row] holds (rank << 32 | id) for the candidates of the row, sorted;
+    // nextCandidate and endCandidate then index into it instead of the word ids
+    private long[][] orderedCandidates;
+    private WordScores scores;
+    // placedScores[row] is the summed score of the rows above it
+    private double[] placedScores;
+    private double scoreFloor = Double.NEGATIVE_INFINITY;
+    private boolean pairDebit;
+    // Only when the letters exactly fill the grid must the odd counts fit on the diagonal
+    private boolean checkParity;
+    private int oddLetters;
+    // Letters that must still appear on the diagonal, see SquareFeasibility
+    private int[] requiredDiagonal;
+    private int missingDiagonal;
+    private boolean[] tookRequiredDiagonal;
+    // MOST_CONSTRAINED fills slot slotAt[depth] at every depth; slotCandidates[depth][slot]
+    // holds the word ids the open slot can still take once the slots above depth are placed
+    private boolean bySlot;
+    private int[] slotAt;
+    private boolean[] slotPlaced;
+    private long[][][] slotCandidates;
+    // Only the 64-bit words [slotFrom, slotTo) of slotCandidates[depth][slot] are current; the rest read as empty
+    private int[][] slotFrom;
+    private int[][] slotTo;
+    // fixedLetters[slot][letter] counts the cells of the open slot that placed slots already fixed to the letter
+    private int[][] fixedLetters;
+    private int[] changedLetters;
+    private LetterBitsetIndex letterIndex;
+
+    private BooleanSupplier stopCondition = () -> Thread.currentThread().isInterrupted();
+    private SearchListener listener = SearchListener.NONE;
+    private boolean tracing;
+    private SolverMetrics metrics;
+    // Counted locally and flushed into metrics whenever next() returns
+    private final long[] nodesPerDepth;
+    private final long[] pruneCounts = new long[SolverMetrics.Prune.values().length];
+    private int placementsUntilCheck = STOP_CHECK_INTERVAL;
+    private int depth;
+    private boolean started;
+    private boolean exhausted;
+    private boolean stopped;
+
+    SquareSearch(PrefixIndex index, int size, LetterCounts remainingLetters) {
+        this(index, size, remainingLetters, index.rangeStart(PrefixIndex.ROOT), index.rangeEnd(PrefixIndex.ROOT));
+    }
+
+    /**
+     * Creates a search whose first row only tries the word ids in [firstRowStart, firstRowEnd),
+     * which is how the parallel search splits the tree.
+     */
+    SquareSearch(PrefixIndex index, int size, LetterCounts remainingLetters, int firstRowStart, int firstRowEnd) {
+        this.index = index;
+        this.alphabet = index.getAlphabet();
+        this.size = size;
+        this.remainingLetters = remainingLetters;
+        this.letterVectors = index.letterVectors();
+        this.letterCodes = index.letterCodes();
+        this.grid = new char[size][size];
+        this.cursors = new int[size + 1][size];
+        this.nextCandidate = new int[size];
+        this.endCandidate = new int[size];
+        this.placedWords = new int[size];
+        this.nodesPerDepth = new long[size];
+        this.firstRowStart = firstRowStart;
+        this.firstRowEnd = firstRowEnd;
+        Arrays.fill(cursors[0], PrefixIndex.ROOT);
+    }
+
+    /**
+     * Sets a condition polled periodically during the search; once it returns true
+     * the search stops as if exhausted and wasStopped() reports it.
+     * By default the search stops when its thread is interrupted.
+     */
+    void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Restricts the search to the word ids in the mask, as if the index held only those words;
+     * must be called before the first next()
+     */
+    void setCandidateMask(CandidateMask mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * Shares the letter bitsets of the index with the MOST_CONSTRAINED strategy, which
+     * otherwise builds its own; must be called before the first next()
+     */
+    void setLetterIndex(LetterBitsetIndex letterIndex) {
+        this.letterIndex = letterIndex;
+    }
+
+    /**
+     * Chooses how letters are debited; must be called before the first next()
+     */
+    void setStrategy(SearchStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Requires every letter of the multiset to appear on the diagonal; a row is rejected once
+     * the missing letters outnumber the diagonal cells left
+     */
+    void setRequiredDiagonal(LetterCounts letters) {
+        requiredDiagonal = new int[index.alphabetSize()];
+        for (int letter = 0; letter < requiredDiagonal.length; letter++) {
+            requiredDiagonal[letter] = letters.count(letter);
+        }
+        missingDiagonal = letters.total();
+        tookRequiredDiagonal = new boolean[size];
+    }
+
+    /**
+     * Orders every row, the first one included, best score first and prunes rows that cannot
+     * lead to a square scoring above the floor; must be called before the first next()
+     */
+    void setScores(WordScores scores) {
+        this.scores = scores;
+        this.placedScores = new double[size + 1];
+        this.orderedCandidates = new long[size][];
+    }
+
+    /**
+     * Only squares scoring more than the floor are searched for from now on; the top-N search
+     * raises it to the N-th best score found so far
+     */
+    void setScoreFloor(double scoreFloor) {
+        this.scoreFloor = scoreFloor;
+    }
+
+    /**
+     * Summed score of the rows of the current square, 0 without scores
+     */
+    double score() {
+        return scores == null ? 0 : placedScores[depth];
+    }
+
+    void setListener(SearchListener listener) {
+        this.listener = listener;
+        this.tracing = listener != SearchListener.NONE;
+    }
+
+    void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    boolean wasStopped() {
+        return stopped;
+    }
+
+    /**
+     * Advances to the next complete square.
+     * Returns false once the search space is exhausted.
+     */
+    boolean next() {
+        boolean found = advance();
+        if (metrics != null) {
+            metrics.addSearchCounts(nodesPerDepth, pruneCounts);
+            Arrays.fill(nodesPerDepth, 0);
+            Arrays.fill(pruneCounts, 0);
+        }
+        return found;
+    }
+
+    private boolean advance() {
+        if (exhausted) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            if (size == 0 || index.getWordLength() != size) {
+                exhausted = true;
+                return size == 0;
+            }
+            pairDebit = strategy == SearchStrategy.SYMMETRIC_PAIRS;
+            // Scored searches bound the unplaced rows by their column prefixes, so keep the row order
+            bySlot = strategy == SearchStrategy.MOST_CONSTRAINED && scores == null;
+            checkParity = (pairDebit || bySlot) && remainingLetters.total() == size * size;
+            oddLetters = remainingLetters.oddCount();
+            if (bySlot) {
+                openFirstSlot();
+            } else {
+                openRow(0);
+            }
+        } else {
+            // Resume below the previously returned square
+            undo(--depth);
+        }
+        if (bySlot) {
+            return advanceBySlot();
+        }
+
+        while (true) {
+            if (nextCandidate[depth] < endCandidate[depth]) {
+                if (stopRequested()) {
+                    return false;
+                }
+                int id = scores != null
+                        ? (int) orderedCandidates[depth][nextCandidate[depth]++]
+                        : takeNextCandidate(depth);
+                if (place(depth, id)) {
+                    nodesPerDepth[depth]++;
+                    if (tracing) {
+                        listener.onNodeVisited(depth);
+                    }
+                    depth++;
+                    if (depth == size) {
+                        if (tracing) {
+                            listener.onSolution(square());
+                        }
+                        return true;
+                    }
+                    openRow(depth);
+                }
+            } else if (depth == 0) {
+                exhausted = true;
+                return false;
+            } else {
+                if (tracing) {
+                    listener.onBacktrack(depth);
+                }
+                undo(--depth);
+            }
+        }
+    }
+
+    private boolean advanceBySlot() {
+        while (true) {
+            int id = nextSlotCandidate(depth);
+            if (id >= 0) {
+                if (stopRequested()) {
+                    return false;
+                }
+                if (placeSlot(depth, id)) {
+                    nodesPerDepth[depth]++;
+                    if (tracing) {
+                        listener.onNodeVisited(depth);
+                    }
+                    depth++;
+                    if (depth == size) {
+                        if (tracing) {
+                            listener.onSolution(square());
+                        }
+                        return true;
+                    }
+                    int slot = slotAt[depth];
+                    nextCandidate[depth] = slotFrom[depth][slot] << 6;
+                    endCandidate[depth] = Math.min(index.size(), slotTo[depth][slot] << 6);
+                }
+            } else if (depth == 0) {
+                exhausted = true;
+                return false;
+            } else {
+                if (tracing) {
+                    listener.onBacktrack(depth);
+                }
+                undo(--depth);
+            }
+        }
+    }
+
+    /**
+     * Polls the stop condition once every STOP_CHECK_INTERVAL placements; once it holds the
+     * search is over
+     */
+    private boolean stopRequested() {
+        if (--placementsUntilCheck == 0) {
+            placementsUntilCheck = STOP_CHECK_INTERVAL;
+            if (stopCondition.getAsBoolean()) {
+                stopped = true;
+                exhausted = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void openRow(int row) {
+        if (row == 0) {
+            nextCandidate[0] = firstCandidate(firstRowStart, firstRowEnd);
+            endCandidate[0] = firstRowEnd;
+            if (scores != null) {
+                orderCandidates(0);
+            }
+            return;
+        }
+        int node = cursors[row][row];
+        nextCandidate[row] = firstCandidate(index.rangeStart(node), index.rangeEnd(node));
+        endCandidate[row] = index.rangeEnd(node);
+        pruneCounts[SolverMetrics.Prune.PREFIX.ordinal()] += (mask == null ? index.size() : mask.cardinality()) - completions(node);
+        if (scores != null) {
+            orderCandidates(row);
+        }
+    }
+
+    private int firstCandidate(int start, int end) {
+        return mask == null ? start : mask.next(start, end);
+    }
+
+    private int takeNextCandidate(int row) {
+        int id = nextCandidate[row];
+        nextCandidate[row] = mask == null ? id + 1 : mask.next(id + 1, endCandidate[row]);
+        return id;
+    }
+
+    /**
+     * Lets every slot take the candidates the letters can pay for and fills slot 0 first, from
+     * the first-row range, which ties with every other slot at that point
+     */
+    private void openFirstSlot() {
+        if (letterIndex == null) {
+            letterIndex = new LetterBitsetIndex(index);
+        }
+        slotAt = new int[size];
+        slotPlaced = new boolean[size];
+        fixedLetters = new int[size][alphabet.size()];
+        changedLetters = new int[size];
+        int words = (index.size() + 63) >>> 6;
+        slotCandidates = new long[size][size][words];
+        slotFrom = new int[size][size];
+        slotTo = new int[size][size];
+        Arrays.fill(slotTo[0], words);
+        for (long[] candidates : slotCandidates[0]) {
+            if (mask != null) {
+                System.arraycopy(mask.bits(), 0, candidates, 0, candidates.length);
+            } else {
+                for (int id = 0; id < index.size(); id++) {
+                    candidates[id >>> 6] |= 1L << id;
+                }
+            }
+            for (int letter = 0; letter < alphabet.size(); letter++) {
+                removeUnaffordable(candidates, 0, words, letter, 0);
+            }
+        }
+        nextCandidate[0] = firstRowStart;
+        endCandidate[0] = firstRowEnd;
+    }
+
+    /**
+     * Removes the words an open slot cannot take for lack of the letter. Every open cell of the
+     * slot but its diagonal one is mirrored in another open slot, so its letter is paid twice:
+     * beyond the cells already fixed to the letter, a word can use it at most (left + 1) / 2 times.
+     */
+    private void removeUnaffordable(long[] candidates, int from, int to, int letter, int fixed) {
+        long[] tooMany = letterIndex.wordsUsingAtLeast(letter, fixed + (remainingLetters.count(letter) + 1) / 2 + 1);
+        if (tooMany != null) {
+            for (int w = from; w < to; w++) {
+                candidates[w] &= ~tooMany[w];
+            }
+        }
+    }
+
+    /**
+     * Takes the next candidate id of the slot filled at the depth, or returns -1 when there is none
+     */
+    private int nextSlotCandidate(int depth) {
+        int id = nextCandidate[depth] < endCandidate[depth]
+                ? LetterBitsetIndex.nextSetBit(slotCandidates[depth][slotAt[depth]], nextCandidate[depth])
+                : -1;
+        if (id < 0 || id >= endCandidate[depth]) {
+            nextCandidate[depth] = endCandidate[depth];
+            return -1;
+        }
+        nextCandidate[depth] = id + 1;
+        return id;
+    }
+
+    /**
+     * Places the word in the slot filled at the depth, debiting its letters in pairs. Cell
+     * (slot, other) is cell (other, slot), so every open slot must take the word's letter
+     * there at the slot's position; their candidates are narrowed to match, and the slot with
+     * the fewest left is the one filled at the next depth. Leaves the budget unchanged when it fails.
+     */
+    private boolean placeSlot(int depth, int id) {
+        int slot = slotAt[depth];
+        int codeOffset = id * size;
+        int diagonal = letterCodes[codeOffset + slot];
+        int slotsLeft = size - depth - 1;
+        boolean takesRequired = requiredDiagonal != null && requiredDiagonal[diagonal] > 0;
+        if (requiredDiagonal != null && missingDiagonal - (takesRequired ? 1 : 0) > slotsLeft) {
+            pruneCounts[SolverMetrics.Prune.PARITY.ordinal()]++;
+            return false;
+        }
+        if (!debitSlot(slot, codeOffset, slotsLeft)) {
+            return false;
+        }
+
+        // The letters debited are the only ones whose budget shrank
+        int changed = 0;
+        changedLetters[changed++] = diagonal;
+        for (int other = 0; other < size; other++) {
+            if (other != slot && !slotPlaced[other]) {
+                int letter = letterCodes[codeOffset + other];
+                fixedLetters[other][letter]++;
+                if (!contains(changedLetters, changed, letter)) {
+                    changedLetters[changed++] = letter;
+                }
+            }
+        }
+
+        long[][] current = slotCandidates[depth];
+        int mostConstrained = -1;
+        int fewest = Integer.MAX_VALUE;
+        for (int other = 0; other < size; other++) {
+            if (other == slot || slotPlaced[other]) {
+                continue;
+            }
+            long[] withLetter = index.wordsWithLetterAt(slot, letterCodes[codeOffset + other]);
+            long[] candidates = current[other];
+            long[] narrowed = slotCandidates[depth + 1][other];
+            int from = slotFrom[depth][other];
+            int to = slotTo[depth][other];
+            for (int w = from; w < to; w++) {
+                narrowed[w] = candidates[w] & withLetter[w];
+            }
+            for (int i = 0; i < changed; i++) {
+                removeUnaffordable(narrowed, from, to, changedLetters[i], fixedLetters[other][changedLetters[i]]);
+            }
+            while (from < to && narrowed[from] == 0) {
+                from++;
+            }
+            while (to > from && narrowed[to - 1] == 0) {
+                to--;
+            }
+            slotFrom[depth + 1][other] = from;
+            slotTo[depth + 1][other] = to;
+            int count = 0;
+            for (int w = from; w < to; w++) {
+                count += Long.bitCount(narrowed[w]);
+            }
+            if (count == 0) {
+                unfixLetters(slot, codeOffset);
+                creditSlot(slot, codeOffset, size);
+                oddLetters += (remainingLetters.count(diagonal) & 1) == 1 ? 1 : -1;
+                pruneCounts[SolverMetrics.Prune.COLUMN.ordinal()]++;
+                return false;
+            }
+            if (count < fewest) {
+                fewest = count;
+                mostConstrained = other;
+            }
+        }
+
+        for (int col = 0; col < size; col++) {
+            char letter = alphabet.letter(letterCodes[codeOffset + col]);
+            grid[slot][col] = letter;
+            grid[col][slot] = letter;
+        }
+        slotPlaced[slot] = true;
+        if (requiredDiagonal != null) {
+            tookRequiredDiagonal[depth] = takesRequired;
+            if (takesRequired) {
+                requiredDiagonal[diagonal]--;
+                missingDiagonal--;
+            }
+        }
+        placedWords[depth] = id;
+        if (mostConstrained >= 0) {
+            slotAt[depth + 1] = mostConstrained;
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void unfixLetters(int slot, int codeOffset) {
+        for (int other = 0; other < size; other++) {
+            if (other != slot && !slotPlaced[other]) {
+                fixedLetters[other][letterCodes[codeOffset + other]]--;
+            }
+        }
+    }
+
+    /**
+     * Debits the diagonal letter of the slot once and its letter in every other open slot twice,
+     * for the two mirrored cells; the cells of placed slots were debited with them. With
+     * slotsLeft diagonal cells open afterwards, the letters left with an odd count must fit there.
+     */
+    private boolean debitSlot(int slot, int codeOffset, int slotsLeft) {
+        int diagonal = letterCodes[codeOffset + slot];
+        if (!remainingLetters.removeCode(diagonal, 1)) {
+            pruneCounts[SolverMetrics.Prune.LETTER_BUDGET.ordinal()]++;
+            return false;
+        }
+        for (int other = 0; other < size; other++) {
+            if (other != slot && !slotPlaced[other] && !remainingLetters.removeCode(letterCodes[codeOffset + other], 2)) {
+                creditSlot(slot, codeOffset, other);
+                pruneCounts[SolverMetrics.Prune.LETTER_BUDGET.ordinal()]++;
+                return false;
+            }
+        }
+        oddLetters += (remainingLetters.count(diagonal) & 1) == 1 ? 1 : -1;
+        if (checkParity && oddLetters > slotsLeft) {
+            creditSlot(slot, codeOffset, size);
+            oddLetters += (remainingLetters.count(diagonal) & 1) == 1 ? 1 : -1;
+            pruneCounts[SolverMetrics.Prune.PARITY.ordinal()]++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the diagonal letter of the slot and the pairs of the open slots before endSlot to the budget
+     */
+    private void creditSlot(int slot, int codeOffset, int endSlot) {
+        remainingLetters.addCode(letterCodes[codeOffset + slot], 1);
+        for (int other = 0; other < endSlot; other++) {
+            if (other != slot && !slotPlaced[other]) {
+                remainingLetters.addCode(letterCodes[codeOffset + other], 2);
+            }
+        }
+    }
+
+    private void undoSlot(int depth) {
+        int slot = slotAt[depth];
+        int codeOffset = placedWords[depth] * size;
+        slotPlaced[slot] = false;
+        unfixLetters(slot, codeOffset);
+        if (requiredDiagonal != null && tookRequiredDiagonal[depth]) {
+            requiredDiagonal[letterCodes[codeOffset + slot]]++;
+            missingDiagonal++;
+        }
+        creditSlot(slot, codeOffset, size);
+        oddLetters += (remainingLetters.count(letterCodes[codeOffset + slot]) & 1) == 1 ? 1 : -1;
+    }
+
+    /**
+     * Number of candidate words below the trie node, 0 when no allowed word has its prefix
+     */
+    private int completions(int node) {
+        return mask == null
+                ? index.rangeEnd(node) - index.rangeStart(node)
+                : mask.count(index.rangeStart(node), index.rangeEnd(node));
+    }
+
+    /**
+     * Sorts the candidate range of the row best score first, ties by word id, and makes
+     * nextCandidate/endCandidate index into the sorted candidates
+     */
+    private void orderCandidates(int row) {
+        int end = endCandidate[row];
+        int count = mask == null ? end - nextCandidate[row] : mask.count(nextCandidate[row], end);
+        long[] candidates = orderedCandidates[row];
+        if (candidates == null || candidates.length < count) {
+            candidates = new long[count];
+            orderedCandidates[row] = candidates;
+        }
+        for (int i = 0; i < count; i++) {
+            int id = takeNextCandidate(row);
+            candidates[i] = (long) -sortableBits(scores.score(id)) << 32 | id;
+        }
+        Arrays.sort(candidates, 0, count);
+        nextCandidate[row] = 0;
+        endCandidate[row] = count;
+    }
+
+    /**
+     * Maps the float to an int with the same order; scores are finite, so never Integer.MIN_VALUE
+     */
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ (bits >> 31 & Integer.MAX_VALUE);
+    }
+
+    /**
+     * Places the word in the row if the letter budget allows it and every column to
+     * the right can still complete to a valid word. The word already matches the
+     * prefix of its row because candidates come from that row's trie range.
+     */
+    boolean place(int row, int id) {
+        int codeOffset = id * size;
+        int diagonal = letterCodes[codeOffset + row];
+        boolean takesRequired = requiredDiagonal != null && requiredDiagonal[diagonal] > 0;
+        if (requiredDiagonal != null && missingDiagonal - (takesRequired ? 1 : 0) > size - row - 1) {
+            pruneCounts[SolverMetrics.Prune.PARITY.ordinal()]++;
+            return false;
+        }
+
+        int vectorOffset = index.vectorOffset(id);
+        if (!pairDebit && !remainingLetters.contains(letterVectors, vectorOffset)) {
+            pruneCounts[SolverMetrics.Prune.LETTER_BUDGET.ordinal()]++;
+            return false;
+        }
+
+        int[] current = cursors[row];
+        int[] next = cursors[row + 1];
+        for (int col = row + 1; col < size; col++) {
+            int node = index.childByCode(current[col], letterCodes[codeOffset + col]);
+            if (node == PrefixIndex.NO_NODE || mask != null && completions(node) == 0) {
+                pruneCounts[SolverMetrics.Prune.COLUMN.ordinal()]++;
+                return false;
+            }
+            next[col] = node;
+        }
+
+        if (scores != null) {
+            double bound = placedScores[row] + scores.score(id);
+            for (int col = row + 1; col < size; col++) {
+                bound += scores.bestBelow(next[col]);
+            }
+            if (bound <= scoreFloor) {
+                pruneCounts[SolverMetrics.Prune.SCORE_BOUND.ordinal()]++;
+                return false;
+            }
+            placedScores[row + 1] = placedScores[row] + scores.score(id);
+        }
+
+        if (pairDebit && !debitPairs(row, codeOffset)) {
+            return false;
+        }
+
+        char[] cells = grid[row];
+        for (int col = 0; col < size; col++) {
+            cells[col] = alphabet.letter(letterCodes[codeOffset + col]);
+        }
+        if (!pairDebit) {
+            remainingLetters.subtract(letterVectors, vectorOffset);
+        }
+        if (requiredDiagonal != null) {
+            tookRequiredDiagonal[row] = takesRequired;
+            if (takesRequired) {
+                requiredDiagonal[diagonal]--;
+                missingDiagonal--;
+            }
+        }
+        placedWords[row] = id;
+        return true;
+    }
+
+    /**
+     * Debits the diagonal letter of the row once and every letter to its right twice,
+     * once for the row and once for the mirrored column cell. The letters to its left were
+     * already debited by the rows above. Leaves the budget unchanged when it fails.
+     */
+    private boolean debitPairs(int row, int codeOffset) {
+        int diagonal = letterCodes[codeOffset + row];
+        if (!remainingLetters.removeCode(diagonal, 1)) {
+            pruneCounts[SolverMetrics.Prune.LETTER_BUDGET.ordinal()]++;
+            return false;
+        }
+        for (int col = row + 1; col < size; col++) {
+            if (!remainingLetters.removeCode(letterCodes[codeOffset + col], 2)) {
+                creditPairs(row, codeOffset, col);
+                pruneCounts[SolverMetrics.Prune.LETTER_BUDGET.ordinal()]++;
+                return false;
+            }
+        }
+        oddLetters += (remainingLetters.count(diagonal) & 1) == 1 ? 1 : -1;
+        if (checkParity && oddLetters > size - row - 1) {
+            creditPairs(row, codeOffset, size);
+            oddLetters += (remainingLetters.count(diagonal) & 1) == 1 ? 1 : -1;
+            pruneCounts[SolverMetrics.Prune.PARITY.ordinal()]++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the diagonal letter and the pairs of the columns before endCol to the budget
+     */
+    private void creditPairs(int row, int codeOffset, int endCol) {
+        remainingLetters.addCode(letterCodes[codeOffset + row], 1);
+        for (int col = row + 1; col < endCol; col++) {
+            remainingLetters.addCode(letterCodes[codeOffset + col], 2);
+        }
+    }
+
+    void undo(int row) {
+        if (bySlot) {
+            undoSlot(row);
+            return;
+        }
+        if (requiredDiagonal != null && tookRequiredDiagonal[row]) {
+            requiredDiagonal[letterCodes[placedWords[row] * size + row]]++;
+            missingDiagonal++;
+        }
+        if (pairDebit) {
+            int codeOffset = placedWords[row] * size;
+            creditPairs(row, codeOffset, size);
+            oddLetters += (remainingLetters.count(letterCodes[codeOffset + row]) & 1) == 1 ? 1 : -1;
+        } else {
+            remainingLetters.add(letterVectors, index.vectorOffset(placedWords[row]));
+        }
+    }
+
+    /**
+     * Trie node reached by the column after the given number of rows were placed
+     */
+    int columnCursor(int rows, int col) {
+        return cursors[rows][col];
+    }
+
+    /**
+     * Returns an iterator that advances the search lazily, one square per next() call
+     */
+    Iterator<List<String>> iterator() {
+        return new Iterator<>() {
+            private boolean advanced;
+            private boolean found;
+
+            @Override
+            public boolean hasNext() {
+                if (!advanced) {
+                    found = SquareSearch.this.next();
+                    advanced = true;
+                }
+                return found;
+            }
+
+            @Override
+            public List<String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                advanced = false;
+                return square();
+            }
+        };
+    }
+
+    /**
+     * Copies the rows currently in the grid out as words
+     */
+    List<String> square() {
+        List<String> rows = new ArrayList<>(depth);
+        for (int row = 0; row < depth; row++) {
+            rows.add(new String(grid[row]));
+        }
+        return rows;
+    }
+}
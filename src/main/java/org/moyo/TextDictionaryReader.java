@@ -0,0 +1,289 @@
+package org.moyo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parses text word lists, one word per line, on all cores.
+ * A plain file is split into chunks of whole lines that are memory-mapped and parsed in
+ * parallel, each into its own per-length sets, which are then merged length by length, also
+ * in parallel. Gzip input, recognised by its magic bytes rather than its name, can only be
+ * inflated sequentially, so it is streamed and handed to the parsers in batches of lines.
+ * <p>
+ * Lines are decoded as UTF-8, trimmed and lower-cased. ASCII lines, by far the common case,
+ * are trimmed and lower-cased on the raw bytes without going through a decoder.
+ * A line may carry a score after the word, separated by whitespace or a comma, such as a
+ * corpus frequency; a word listed more than once keeps its highest score.
+ */
+final class TextDictionaryReader {
+
+    static final int MIN_CHUNK_BYTES = 1 << 20;
+    static final int MAX_CHUNK_BYTES = 64 << 20;
+    private static final int GZIP_BATCH_LINES = 1 << 16;
+
+    /**
+     * Words by length, each packed into a read-only WordBucket where possible, the scores of
+     * the words that have one and the statistics of the read
+     */
+    record Result(Map<Integer, Set<String>> buckets, Map<String, Float> scores, LoadStatistics statistics) {
+    }
+
+    /**
+     * Words of one chunk or batch by length, their scores, and the number of non-empty lines they came from
+     */
+    private static final class Parsed {
+
+        private final Map<Integer, Set<String>> buckets = new HashMap<>();
+        private final Map<String, Float> scores = new HashMap<>();
+        private long lines;
+
+        void add(String line) {
+            if (line.isEmpty()) {
+                return;
+            }
+            lines++;
+            String word = line;
+            int separator = scoreSeparator(line);
+            if (separator > 0) {
+                float score = parseScore(line.substring(separator + 1).trim());
+                if (!Float.isNaN(score)) {
+                    word = line.substring(0, separator).trim();
+                    scores.merge(word, score, Math::max);
+                }
+            }
+            buckets.computeIfAbsent(word.length(), length -> new HashSet<>()).add(word);
+        }
+
+        void add(byte[] line, int length) {
+            int from = 0;
+            int to = length;
+            while (from < to && (line[from] & 0xFF) <= ' ') {
+                from++;
+            }
+            while (to > from && (line[to - 1] & 0xFF) <= ' ') {
+                to--;
+            }
+            boolean ascii = true;
+            for (int i = from; i < to; i++) {
+                byte b = line[i];
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+                if (b >= 'A' && b <= 'Z') {
+                    line[i] = (byte) (b + ('a' - 'A'));
+                }
+            }
+            add(ascii
+                    ? new String(line, from, to - from, StandardCharsets.ISO_8859_1)
+                    : new String(line, from, to - from, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private TextDictionaryReader() {
+    }
+
+    private static int scoreSeparator(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ' || c == '\t' || c == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the score, or NaN when the text is not a finite number and so not a score column
+     */
+    private static float parseScore(String text) {
+        // Most separated lines that are not scored are phrases, rejected here without an exception
+        char last = text.isEmpty() ? ' ' : text.charAt(text.length() - 1);
+        if (!Character.isDigit(last) && last != '.') {
+            return Float.NaN;
+        }
+        try {
+            float score = Float.parseFloat(text);
+            return Float.isFinite(score) ? score : Float.NaN;
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    /**
+     * Reads the word list at path and merges its words into copies of the existing buckets,
+     * and its scores into a copy of the existing scores
+     */
+    static Result read(Path path, Map<Integer, Set<String>> existing, Map<String, Float> existingScores) throws IOException {
+        long start = System.nanoTime();
+        long bytes;
+        List<Parsed> parts;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            bytes = channel.size();
+            parts = isGzip(channel) ? parseGzip(channel) : parseMapped(channel);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Map<Integer, Set<String>> buckets = merge(existing, parts);
+        Map<String, Float> scores = new HashMap<>(existingScores);
+        parts.forEach(part -> part.scores.forEach((word, score) -> scores.merge(word, score, Math::max)));
+        long lines = parts.stream().mapToLong(part -> part.lines).sum();
+        long words = buckets.values().stream().mapToLong(Set::size).sum();
+        return new Result(buckets, scores, new LoadStatistics(bytes, lines, words, System.nanoTime() - start));
+    }
+
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        return channel.size() >= 2
+                && channel.read(magic, 0) == 2
+                && (magic.get(0) & 0xFF) == 0x1F
+                && (magic.get(1) & 0xFF) == 0x8B;
+    }
+
+    private static List<Parsed> parseMapped(FileChannel channel) throws IOException {
+        return split(channel).parallelStream()
+                .map(range -> parseChunk(channel, range[0], range[1]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cuts the file into [start, end) ranges that each end just after a line break,
+     * enough of them to keep every core busy but none larger than MAX_CHUNK_BYTES plus a line
+     */
+    static List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunks = Math.max(1, Math.max(
+                (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES,
+                Math.min(size / MIN_CHUNK_BYTES, ForkJoinPool.getCommonPoolParallelism() * 4L)));
+        long chunkBytes = (size + chunks - 1) / chunks;
+
+        List<long[]> ranges = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkBytes >= size ? size : nextLineStart(channel, start + chunkBytes);
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += Math.max(read, 0);
+        }
+        return size;
+    }
+
+    private static Parsed parseChunk(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Parsed parsed = new Parsed();
+        byte[] line = new byte[64];
+        int length = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                parsed.add(line, length);
+                length = 0;
+            } else {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+        }
+        parsed.add(line, length);
+        return parsed;
+    }
+
+    private static List<Parsed> parseGzip(FileChannel channel) throws IOException {
+        List<CompletableFuture<Parsed>> batches = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Channels.newInputStream(channel.position(0)), 1 << 16), StandardCharsets.UTF_8))) {
+            List<String> batch = new ArrayList<>(GZIP_BATCH_LINES);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == GZIP_BATCH_LINES) {
+                    batches.add(parseAsync(batch));
+                    batch = new ArrayList<>(GZIP_BATCH_LINES);
+                }
+            }
+            batches.add(parseAsync(batch));
+        }
+        return batches.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private static CompletableFuture<Parsed> parseAsync(List<String> lines) {
+        return CompletableFuture.supplyAsync(() -> {
+            Parsed parsed = new Parsed();
+            for (String line : lines) {
+                parsed.add(line.trim().toLowerCase(Locale.ROOT));
+            }
+            return parsed;
+        });
+    }
+
+    /**
+     * Unions the existing buckets and the parsed parts length by length, in parallel across lengths
+     */
+    private static Map<Integer, Set<String>> merge(Map<Integer, Set<String>> existing, List<Parsed> parts) {
+        Set<Integer> lengths = new HashSet<>(existing.keySet());
+        parts.forEach(part -> lengths.addAll(part.buckets.keySet()));
+
+        Map<Integer, Set<String>> merged = new ConcurrentHashMap<>();
+        lengths.parallelStream().forEach(length -> {
+            Set<String> words = null;
+            for (Parsed part : parts) {
+                Set<String> partWords = part.buckets.get(length);
+                if (partWords == null) {
+                    continue;
+                }
+                // The parts are ours, so the largest one is reused rather than copied
+                if (words == null || partWords.size() > words.size()) {
+                    if (words != null) {
+                        partWords.addAll(words);
+                    }
+                    words = partWords;
+                } else {
+                    words.addAll(partWords);
+                }
+            }
+            if (words == null) {
+                words = new HashSet<>();
+            }
+            words.addAll(existing.getOrDefault(length, Set.of()));
+            merged.put(length, WordBucket.pack(length, words));
+        });
+        return new HashMap<>(merged);
+    }
+}
@@ -0,0 +1,180 @@
+package org.moyo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Read-only set of same-length words stored sorted and packed in a single buffer,
+ * word i at offset i * wordLength, one byte per letter, so the id of a word is its rank.
+ * Lookups binary search the buffer, so the words can stay in a memory-mapped file.
+ * Text loads pack their words into a heap buffer the same way, which costs wordLength bytes
+ * per word instead of a String and a hash node.
+ * A byte is either the Latin-1 character itself or, when the bucket has an Alphabet, the
+ * code of the letter in it, which lets compiled dictionaries hold Greek or Cyrillic words.
+ */
+class WordBucket extends AbstractSet<String> {
+
+    private final ByteBuffer letters;
+    private final int wordLength;
+    private final int wordCount;
+    // The alphabet the bytes are codes of, or null when they are Latin-1 characters
+    private final Alphabet alphabet;
+
+    WordBucket(ByteBuffer letters, int wordLength) {
+        this(letters, wordLength, null);
+    }
+
+    WordBucket(ByteBuffer letters, int wordLength, Alphabet alphabet) {
+        this.letters = letters;
+        this.wordLength = wordLength;
+        this.wordCount = wordLength == 0 ? 0 : letters.capacity() / wordLength;
+        this.alphabet = alphabet;
+    }
+
+    /**
+     * Packs the words into a heap bucket, or returns them as an unmodifiable set when a
+     * word has a character that does not fit in one byte
+     */
+    static Set<String> pack(int wordLength, Collection<String> words) {
+        String[] sorted = words.stream().distinct().sorted().toArray(String[]::new);
+        byte[] packed = new byte[sorted.length * wordLength];
+        for (int id = 0; id < sorted.length; id++) {
+            String word = sorted[id];
+            for (int i = 0; i < wordLength; i++) {
+                char c = word.charAt(i);
+                if (c > 0xFF) {
+                    return Collections.unmodifiableSet(new HashSet<>(words));
+                }
+                packed[id * wordLength + i] = (byte) c;
+            }
+        }
+        return new WordBucket(ByteBuffer.wrap(packed), wordLength);
+    }
+
+    String word(int id) {
+        byte[] bytes = new byte[wordLength];
+        letters.get(id * wordLength, bytes);
+        if (alphabet == null) {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        char[] chars = new char[wordLength];
+        for (int i = 0; i < wordLength; i++) {
+            chars[i] = alphabet.letter(bytes[i]);
+        }
+        return new String(chars);
+    }
+
+    private char letterAt(int position) {
+        int b = letters.get(position) & 0xFF;
+        return alphabet == null ? (char) b : alphabet.letter(b);
+    }
+
+    /**
+     * Returns the alphabet codes of the words made only of letters of the alphabet, in id order
+     */
+    byte[] indexableLetterCodes(Alphabet alphabet) {
+        byte[] codes = new byte[wordCount * wordLength];
+        if (alphabet.equals(this.alphabet)) {
+            letters.get(0, codes);
+            return codes;
+        }
+        int length = 0;
+        for (int id = 0; id < wordCount; id++) {
+            int offset = id * wordLength;
+            boolean indexable = true;
+            for (int i = 0; i < wordLength && indexable; i++) {
+                int code = alphabet.code(letterAt(offset + i));
+                indexable = code >= 0;
+                codes[length + i] = (byte) code;
+            }
+            if (indexable) {
+                length += wordLength;
+            }
+        }
+        return length == codes.length ? codes : Arrays.copyOf(codes, length);
+    }
+
+    /**
+     * Adds the number of occurrences of every Latin-1 character of the words to counts,
+     * indexed by character; only for buckets without an alphabet
+     */
+    void countCharacters(long[] counts) {
+        int limit = wordCount * wordLength;
+        for (int i = 0; i < limit; i++) {
+            counts[letters.get(i) & 0xFF]++;
+        }
+    }
+
+    Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Returns the id of the word, or -1 if it is not in the bucket
+     */
+    int indexOf(String word) {
+        if (word.length() != wordLength || alphabet != null && !alphabet.contains(word)) {
+            return -1;
+        }
+        int low = 0;
+        int high = wordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareAt(middle, word);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compareAt(int id, String word) {
+        int offset = id * wordLength;
+        for (int i = 0; i < wordLength; i++) {
+            int difference = letterAt(offset + i) - word.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    int getWordLength() {
+        return wordLength;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String word && indexOf(word) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < wordCount;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return word(next++);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return wordCount;
+    }
+}
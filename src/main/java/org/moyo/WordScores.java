@@ -0,0 +1,59 @@
+package org.moyo;
+
+import java.util.Map;
+
+/**
+ * Scores of the words of one PrefixIndex by word id, such as corpus frequencies loaded with
+ * the word list; words without a score count 0.
+ * For every trie node it also keeps the best score of any word below it. The rows of a
+ * square that are not placed yet each continue a column prefix, so the sum of the best
+ * scores below those column nodes bounds what the rest of the square can still add.
+ */
+public final class WordScores {
+
+    private final float[] scores;
+    private final float[] bestBelow;
+
+    WordScores(PrefixIndex index, Map<String, Float> scoresByWord) {
+        this(index, byId(index, scoresByWord));
+    }
+
+    /**
+     * Takes ownership of the scores, indexed by word id, as stored in a compiled dictionary
+     */
+    WordScores(PrefixIndex index, float[] scores) {
+        this.scores = scores;
+
+        int[] rangeStarts = index.rangeStarts();
+        int[] rangeEnds = index.rangeEnds();
+        this.bestBelow = new float[rangeStarts.length];
+        for (int node = 0; node < bestBelow.length; node++) {
+            float best = Float.NEGATIVE_INFINITY;
+            for (int id = rangeStarts[node]; id < rangeEnds[node]; id++) {
+                best = Math.max(best, scores[id]);
+            }
+            bestBelow[node] = best;
+        }
+    }
+
+    private static float[] byId(PrefixIndex index, Map<String, Float> scoresByWord) {
+        float[] scores = new float[index.size()];
+        if (!scoresByWord.isEmpty()) {
+            for (int id = 0; id < scores.length; id++) {
+                scores[id] = scoresByWord.getOrDefault(index.word(id), 0f);
+            }
+        }
+        return scores;
+    }
+
+    float score(int id) {
+        return scores[id];
+    }
+
+    /**
+     * Best score of any word with the prefix of the trie node
+     */
+    float bestBelow(int node) {
+        return bestBelow[node];
+    }
+}
@@ -1,22 +1,85 @@
 package org.moyo;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 
 public class WordSquareApp {
     private static final String DEFAULT_DICTIONARY_PATH = "src/main/resources/words.txt";
-    private DictionaryLoader loader;
-    private WordSquareSolver resolver;
+    private static final int WARM_UP_MAX_SIZE = 10;
+    private final DictionaryLoader loader;
+    private final WordSquareSolver resolver;
+    private final SolverStatistics statistics = new SolverStatistics();
+    private final SolveCache cache = new SolveCache();
+    private final SolutionStore store;
+    private CancellationToken precompute;
     private boolean running = true;
 
     public WordSquareApp(String dictionaryPath) {
+        this(dictionaryPath, null);
+    }
+
+    /**
+     * storeDirectory holds the persistent solution store, or is null to run without one
+     */
+    public WordSquareApp(String dictionaryPath, String storeDirectory) {
         System.out.println("Loading dictionary from: " + dictionaryPath);
         this.loader = new DictionaryLoader();
-        this.loader.loadFromTextFile(dictionaryPath);
-        this.resolver = new WordSquareSolver(loader);
-        System.out.println("Dictionary loaded. Ready to solve word squares.");
+        this.loader.load(dictionaryPath);
+        this.resolver = newSolver(loader);
+        this.store = storeDirectory == null ? null : openSolutionStore(storeDirectory);
+        resolver.setSolutionStore(store);
+        statistics.registerMBean();
+        System.out.println("Dictionary loaded: " + loader.snapshot().getLoadStatistics());
+        printStoreStatus(loader.snapshot());
+        System.out.println("Ready to solve word squares.");
+    }
+
+    private static SolutionStore openSolutionStore(String directory) {
+        try {
+            return SolutionStore.open(Path.of(directory));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open solution store: " + directory, e);
+        }
+    }
+
+    /**
+     * Reports how many stored puzzles belong to the dictionary; none while the store holds
+     * others means they were solved with a different dictionary and will not be used
+     */
+    private void printStoreStatus(DictionarySnapshot snapshot) {
+        if (store == null) {
+            return;
+        }
+        int entries = store.entriesFor(snapshot.getContentHash());
+        System.out.println("Solution store " + store.getDirectory() + ": " + entries + " of " + store.size()
+                + " stored puzzles match this dictionary");
+        if (entries == 0 && store.size() > 0) {
+            System.err.println("Warning: the dictionary changed since the store was filled; its puzzles will not be used");
+        }
+    }
+
+    private WordSquareSolver newSolver(DictionaryLoader loader) {
+        WordSquareSolver solver = new WordSquareSolver(loader, statistics);
+        solver.setCache(cache);
+        return solver;
     }
 
     public static void main(String[] args) {
@@ -24,10 +87,50 @@ public class WordSquareApp {
         Map<String, String> initialArgs = parseArguments(args);
         String dictionaryPath = initialArgs.getOrDefault("dictionaryFilePath", DEFAULT_DICTIONARY_PATH);
 
-        WordSquareApp app = new WordSquareApp(dictionaryPath);
+        if (initialArgs.containsKey("batch")) {
+            System.exit(runBatch(dictionaryPath, initialArgs));
+        }
+        if (initialArgs.containsKey("serve")) {
+            serve(dictionaryPath, initialArgs);
+            return;
+        }
+
+        WordSquareApp app = new WordSquareApp(dictionaryPath, initialArgs.get("solutionStore"));
         app.run();
     }
 
+    /**
+     * Solves every puzzle of the -batch file ("stdin" for standard input) and writes JSON Lines
+     * to -output, or standard output. Progress goes to standard error so the output stays clean.
+     */
+    private static int runBatch(String dictionaryPath, Map<String, String> arguments) {
+        try {
+            int workers = getPositive(arguments, "workers", Runtime.getRuntime().availableProcessors());
+            System.err.println("Loading dictionary from: " + dictionaryPath);
+            DictionaryLoader loader = new DictionaryLoader();
+            loader.load(dictionaryPath);
+            WordSquareSolver solver = new WordSquareSolver(loader);
+            solver.setSearchStrategy(getStrategy(arguments));
+
+            String input = arguments.get("batch");
+            String output = arguments.get("output");
+            try (BufferedReader reader = "stdin".equals(input)
+                         ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                         : Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8);
+                 Writer writer = output == null
+                         ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                         : Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8)) {
+                BatchSolver.Summary summary = new BatchSolver(solver, workers).run(reader, writer);
+                System.err.printf(Locale.ROOT, "Solved %d of %d puzzles (%d failed) in %dms, %.1f puzzles/s%n",
+                        summary.solved(), summary.puzzles(), summary.failed(), summary.millis(), summary.puzzlesPerSecond());
+            }
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Error running batch: " + e.getMessage());
+            return 1;
+        }
+    }
+
     private void run() {
         Scanner scanner = new Scanner(System.in);
 
@@ -45,6 +148,16 @@ public class WordSquareApp {
         }
 
         scanner.close();
+        if (precompute != null) {
+            precompute.cancel();
+        }
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Error closing solution store: " + e.getMessage());
+            }
+        }
         System.out.println("Exiting Word Square Solver. Goodbye!");
     }
 
@@ -56,9 +169,18 @@ public class WordSquareApp {
             case "solve":
                 handleSolve(tokens);
                 break;
+            case "rectangle":
+                handleRectangle(tokens);
+                break;
             case "load":
                 handleLoad(tokens);
                 break;
+            case "compile":
+                handleCompile(tokens);
+                break;
+            case "precompute":
+                handlePrecompute(tokens);
+                break;
             case "help":
                 printHelp();
                 break;
@@ -89,19 +211,97 @@ public class WordSquareApp {
 
             int size = getSize(arguments);
             String sequence = arguments.get("sequence");
+            boolean parallel = Boolean.parseBoolean(arguments.getOrDefault("parallel", "false"));
+            int maxSolutions = getMaxSolutions(arguments);
+            boolean trace = Boolean.parseBoolean(arguments.getOrDefault("trace", "false"));
+            boolean showMetrics = Boolean.parseBoolean(arguments.getOrDefault("metrics", "false"));
+            Duration timeBudget = arguments.containsKey("timeout")
+                    ? Duration.ofMillis(getPositive(arguments, "timeout", 0))
+                    : null;
+            if (parallel && (maxSolutions > 1 || arguments.containsKey("top"))) {
+                System.err.println("Error: -parallel finds a single square and cannot be combined with -max or -top.");
+                return;
+            }
+            resolver.setSearchStrategy(getStrategy(arguments));
+            CountingSearchListener counters = new CountingSearchListener();
+            resolver.setSearchListener(trace ? counters : SearchListener.NONE);
 
             System.out.println("Solving word square of size " + size + " with sequence: " + sequence);
             long startTime = System.currentTimeMillis();
 
-            List<String> results = resolver.solveWordSquare(size, sequence);
+            if (arguments.containsKey("top")) {
+                int top = getPositive(arguments, "top", 1);
+                if (!loader.snapshot().hasScores()) {
+                    System.err.println("Warning: the dictionary has no word scores; every square scores 0 and they are listed in search order");
+                }
+                RankedResult ranked = timeBudget == null
+                        ? resolver.solveRanked(size, sequence, top)
+                        : resolver.solveRanked(size, sequence, top, timeBudget);
+                if (ranked.squares().isEmpty()) {
+                    System.out.println(ranked.status() == SolveStatus.TIMED_OUT
+                            ? "No solution found within " + timeBudget.toMillis() + "ms."
+                            : "No solutions found.");
+                } else {
+                    System.out.println("\nTop " + ranked.squares().size() + " solution(s) by score"
+                            + (ranked.status() == SolveStatus.TIMED_OUT ? ", best found within " + timeBudget.toMillis() + "ms" : "") + ":");
+                    for (RankedSquare square : ranked.squares()) {
+                        System.out.println("\nscore " + square.score());
+                        square.square().forEach(System.out::println);
+                    }
+                }
+                if (showMetrics) {
+                    System.out.println("\nMetrics:\n" + ranked.metrics());
+                }
+                System.out.println("\n...done in " + (System.currentTimeMillis() - startTime) + "ms");
+                return;
+            }
+
+            List<List<String>> results;
+            SolverMetrics metrics = null;
+            SolveStatus status = null;
+            if (maxSolutions > 1) {
+                EnumerationResult enumeration = timeBudget == null
+                        ? resolver.solveAll(size, sequence, maxSolutions)
+                        : resolver.solveAll(size, sequence, maxSolutions, timeBudget, CancellationToken.NONE);
+                metrics = enumeration.metrics();
+                status = enumeration.status();
+                results = enumeration.squares();
+            } else {
+                SolveResult result;
+                if (timeBudget == null) {
+                    result = parallel
+                            ? resolver.solveParallel(size, sequence, ForkJoinPool.commonPool())
+                            : resolver.solve(size, sequence);
+                } else {
+                    result = parallel
+                            ? resolver.solveParallel(size, sequence, ForkJoinPool.commonPool(), timeBudget, CancellationToken.NONE)
+                            : resolver.solve(size, sequence, timeBudget);
+                }
+                metrics = result.metrics();
+                status = result.status();
+                results = result.isSolved() ? List.of(result.square()) : List.of();
+            }
 
             long endTime = System.currentTimeMillis();
 
-            if (results.isEmpty()) {
+            if (status == SolveStatus.TIMED_OUT && results.isEmpty()) {
+                System.out.println("No solution found within " + timeBudget.toMillis() + "ms.");
+            } else if (results.isEmpty()) {
                 System.out.println("No solutions found.");
             } else {
-                System.out.println("\nFound " + results.size() + " solution(s):\n");
-                results.forEach(System.out::println);
+                System.out.println("\nFound " + results.size() + " solution(s)"
+                        + (status == SolveStatus.TIMED_OUT ? " within " + timeBudget.toMillis() + "ms" : "") + ":");
+                for (List<String> square : results) {
+                    System.out.println();
+                    square.forEach(System.out::println);
+                }
+            }
+            if (trace) {
+                System.out.println("\nSearch: " + counters);
+            }
+            if (showMetrics) {
+                System.out.println("\nMetrics:\n" + metrics);
+                System.out.println("Cache: " + cache);
             }
             System.out.println("\n...done in " + (endTime - startTime) + "ms");
 
@@ -110,6 +310,47 @@ public class WordSquareApp {
         }
     }
 
+    private void handleRectangle(String[] tokens) {
+        try {
+            Map<String, String> arguments = parseArguments(Arrays.copyOfRange(tokens, 1, tokens.length));
+            if (!arguments.containsKey("rows") || !arguments.containsKey("columns") || !arguments.containsKey("sequence")) {
+                System.err.println("Error: Missing required arguments.");
+                System.out.println("Usage: rectangle -rows <m> -columns <n> -sequence <letters>");
+                System.out.println("Example: rectangle -rows 3 -columns 4 -sequence aabeeilmnorst");
+                return;
+            }
+            int rows = getPositive(arguments, "rows", 0);
+            int columns = getPositive(arguments, "columns", 0);
+            String sequence = arguments.get("sequence");
+            boolean showMetrics = Boolean.parseBoolean(arguments.getOrDefault("metrics", "false"));
+            Duration timeBudget = arguments.containsKey("timeout")
+                    ? Duration.ofMillis(getPositive(arguments, "timeout", 0))
+                    : null;
+
+            System.out.println("Solving " + rows + "x" + columns + " word rectangle with sequence: " + sequence);
+            long startTime = System.currentTimeMillis();
+            SolveResult result = timeBudget == null
+                    ? resolver.solveRectangle(rows, columns, sequence)
+                    : resolver.solveRectangle(rows, columns, sequence, timeBudget, CancellationToken.NONE);
+            long endTime = System.currentTimeMillis();
+
+            if (result.isSolved()) {
+                System.out.println();
+                result.square().forEach(System.out::println);
+            } else if (result.status() == SolveStatus.TIMED_OUT) {
+                System.out.println("No solution found within " + timeBudget.toMillis() + "ms.");
+            } else {
+                System.out.println("No solutions found.");
+            }
+            if (showMetrics) {
+                System.out.println("\nMetrics:\n" + result.metrics());
+            }
+            System.out.println("\n...done in " + (endTime - startTime) + "ms");
+        } catch (Exception e) {
+            System.err.println("Error solving word rectangle: " + e.getMessage());
+        }
+    }
+
     private void handleLoad(String[] tokens) {
         if (tokens.length < 2) {
             System.err.println("Error: Missing dictionary path.");
@@ -118,15 +359,84 @@ public class WordSquareApp {
             return;
         }
 
+        String path = tokens[1];
+        System.out.println("Loading dictionary in the background from: " + path);
+        // Solves keep running on the current dictionary until the new one is ready
+        loader.reloadAsync(path, 2, WARM_UP_MAX_SIZE, ForkJoinPool.commonPool())
+                .whenComplete((snapshot, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        System.err.println("\nError loading dictionary: " + cause.getMessage());
+                    } else {
+                        cache.invalidate();
+                        System.out.println("\nDictionary loaded successfully (version " + snapshot.getVersion() + "): "
+                                + snapshot.getLoadStatistics());
+                        printStoreStatus(snapshot);
+                    }
+                });
+    }
+
+    private void handlePrecompute(String[] tokens) {
+        if (tokens.length > 1 && tokens[1].equalsIgnoreCase("stop")) {
+            if (precompute != null) {
+                precompute.cancel();
+            }
+            return;
+        }
+        if (store == null) {
+            System.err.println("Error: No solution store. Start with -solutionStore <directory>.");
+            return;
+        }
+        if (precompute != null && !precompute.isCancelled()) {
+            System.err.println("Error: A precompute is already running; stop it with: precompute stop");
+            return;
+        }
+        try {
+            String[] args = Arrays.copyOfRange(tokens, 1, tokens.length);
+            Map<String, String> arguments = parseArguments(args);
+            if (!arguments.containsKey("size")) {
+                System.err.println("Error: Missing required arguments.");
+                System.out.println("Usage: precompute -size <size> [-max <n>]");
+                return;
+            }
+            int size = getPositive(arguments, "size", 0);
+            int maxSquares = getPositive(arguments, "max", Integer.MAX_VALUE);
+
+            CancellationToken token = new CancellationToken();
+            precompute = token;
+            SolutionPrecompute job = new SolutionPrecompute(loader.snapshot(), store);
+            System.out.println("Precomputing " + size + "x" + size + " puzzles in the background; stop with: precompute stop");
+            CompletableFuture.supplyAsync(() -> job.run(size, maxSquares, token), ForkJoinPool.commonPool())
+                    .whenComplete((summary, error) -> {
+                        token.cancel();
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            System.err.println("\nError precomputing puzzles: " + cause.getMessage());
+                        } else {
+                            System.out.println("\nPrecompute finished: " + summary + "; the store holds "
+                                    + store.size() + " puzzles");
+                        }
+                    });
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void handleCompile(String[] tokens) {
+        if (tokens.length < 2 || !DictionaryLoader.isCompiledDictionary(tokens[1])) {
+            System.err.println("Error: Missing or invalid output path.");
+            System.out.println("Usage: compile <path" + DictionaryLoader.COMPILED_EXTENSION + ">");
+            System.out.println("Example: compile ./words" + DictionaryLoader.COMPILED_EXTENSION);
+            return;
+        }
+
         String path = tokens[1];
         try {
-            System.out.println("Loading dictionary from: " + path);
-            this.loader = new DictionaryLoader();
-            this.loader.loadFromTextFile(path);
-            this.resolver = new WordSquareSolver(loader);
-            System.out.println("Dictionary loaded successfully.");
+            System.out.println("Compiling dictionary to: " + path);
+            loader.compileToBinaryFile(path);
+            System.out.println("Dictionary compiled. Load it with: load " + path);
         } catch (Exception e) {
-            System.err.println("Error loading dictionary: " + e.getMessage());
+            System.err.println("Error compiling dictionary: " + e.getMessage());
         }
     }
 
@@ -135,14 +445,39 @@ public class WordSquareApp {
             
             === Word Square Solver ===
             Available commands:
-              solve -size <size> -sequence <letters>
+              solve -size <size> -sequence <letters> [-parallel true] [-max <n>] [-top <n>] [-trace true] [-metrics true] [-strategy symmetric|constrained] [-timeout <ms>]
                   Solve a word square with the given size and letter sequence
+                  -parallel true searches the first-row candidates on all cores (not with -max or -top)
+                  -max <n> lists up to n different squares instead of the first one
+                  -top <n> lists the n squares with the highest summed word scores
+                  -trace true prints how many nodes the search visited
+                  -metrics true prints node, prune and per-phase timing metrics
+                  -strategy symmetric debits mirrored letters in pairs, pruning earlier
+                  -strategy constrained fills the row and column with the fewest candidates next
+                  -timeout <ms> gives up on a search still running after that long
                   Example: solve -size 5 -sequence aabbeeeeeeeehmosrrrruttvv
             
+              rectangle -rows <m> -columns <n> -sequence <letters> [-metrics true] [-timeout <ms>]
+                  Solve a word rectangle: m words of length n across, n different words of length m down.
+                  With m = n this is a double word square.
+                  Example: rectangle -rows 3 -columns 4 -sequence aabeeilmnorst
+            
               load <path>
-                  Load a different dictionary file
+                  Load a different dictionary file (text, or compiled .wsd) in the background;
+                  solves keep using the current dictionary until it is ready
                   Example: load ./custom-dictionary.txt
+
+              compile <path.wsd>
+                  Write the loaded dictionary in the compiled binary format,
+                  which loads in milliseconds by memory-mapping it
+                  Example: compile ./words.wsd
             
+              precompute -size <size> [-max <n>] | precompute stop
+                  Fill the solution store (see -solutionStore) in the background with every
+                  solvable puzzle of the size, stopping after n squares with -max;
+                  running it again resumes where the last run stopped
+                  Example: precompute -size 4
+
               help
                   Display this help message
             
@@ -170,6 +505,79 @@ public class WordSquareApp {
         return arguments;
     }
 
+    private static int getMaxSolutions(Map<String, String> arguments) {
+        if (!arguments.containsKey("max")) {
+            return 1;
+        }
+        try {
+            int maxSolutions = Integer.parseInt(arguments.get("max"));
+            if (maxSolutions < 1) {
+                throw new IllegalArgumentException("Max must be at least 1");
+            }
+            return maxSolutions;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Max must be a valid integer");
+        }
+    }
+
+    /**
+     * Starts the HTTP service on the -serve port; it runs until the process is stopped
+     */
+    private static void serve(String dictionaryPath, Map<String, String> arguments) {
+        try {
+            int port = getPositive(arguments, "serve", 0);
+            Duration timeout = Duration.ofMillis(getPositive(arguments, "timeout", 10_000));
+            int concurrency = getPositive(arguments, "concurrency", 2 * Runtime.getRuntime().availableProcessors());
+            System.out.println("Loading dictionary from: " + dictionaryPath);
+            DictionaryLoader loader = new DictionaryLoader();
+            loader.load(dictionaryPath);
+            // Build the shared indexes up front so the first requests do not pay for them
+            loader.snapshot().warmUp(2, WARM_UP_MAX_SIZE);
+            SolverStatistics statistics = new SolverStatistics();
+            statistics.registerMBean();
+            WordSquareSolver solver = new WordSquareSolver(loader, statistics);
+            solver.setSearchStrategy(getStrategy(arguments));
+
+            SolveServer server = new SolveServer(solver, new InetSocketAddress(port), timeout, concurrency);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            System.out.println("Serving word squares on http://localhost:" + server.getPort()
+                    + "/solve?size=<n>&sequence=<letters>");
+        } catch (Exception e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static int getPositive(Map<String, String> arguments, String name, int defaultValue) {
+        if (!arguments.containsKey(name)) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(arguments.get(name));
+            if (value < 1) {
+                throw new IllegalArgumentException(name + " must be at least 1");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a valid integer");
+        }
+    }
+
+    private static SearchStrategy getStrategy(Map<String, String> arguments) {
+        String strategy = arguments.getOrDefault("strategy", "rows");
+        switch (strategy.toLowerCase()) {
+            case "rows":
+                return SearchStrategy.ROWS;
+            case "symmetric":
+                return SearchStrategy.SYMMETRIC_PAIRS;
+            case "constrained":
+                return SearchStrategy.MOST_CONSTRAINED;
+            default:
+                throw new IllegalArgumentException("Strategy must be rows, symmetric or constrained");
+        }
+    }
+
     private static int getSize(Map<String, String> arguments) {
         int size = 0;
         try {
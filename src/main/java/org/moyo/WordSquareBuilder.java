@@ -1,175 +1,203 @@
-
 package org.moyo;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Responsible for building word squares using backtracking algorithm.
  * Maintains the constraint that row[i] = column[i] for all positions.
+ * The search itself runs in SquareSearch over a char grid and per-column trie cursors.
  */
 public class WordSquareBuilder {
 
-    private final Set<String> validWords;
+    private final PrefixIndex index;
     final int size;
+    private SearchListener listener = SearchListener.NONE;
+    private SolverMetrics metrics;
+    private SearchStrategy strategy = SearchStrategy.ROWS;
+    private LetterCounts requiredDiagonal;
+    private CandidateMask candidateMask;
+    private LetterBitsetIndex letterIndex;
+    private BooleanSupplier stopCondition;
+    private boolean stopped;
 
     public WordSquareBuilder(int size, Set<String> validWords) {
-        this.validWords = validWords;
-        this.size = size;
+        this(size, new PrefixIndex(size, validWords));
     }
 
-
-
-    public Optional<List<String>> build(Map<Character, Integer> remainingLetters) {
-        List<String> currentSquare = new ArrayList<>();
-        if (buildSquare(currentSquare, remainingLetters)) {
-            return Optional.of(currentSquare);
-        }
-        return Optional.empty();
+    public WordSquareBuilder(int size, PrefixIndex index) {
+        this.index = index;
+        this.size = size;
     }
 
-
-    private boolean buildSquare(List<String> currentSquare, Map<Character, Integer> remainingLetters) {
-        // Base case: completed the square
-        if (currentSquare.size() == size) {
-            return true;
-        }
-        int row = currentSquare.size();
-        String requiredPrefix = getRequiredPrefix(currentSquare, row);
-
-        // Try each word that could fit in this row
-        for (String candidateWord : validWords) {
-            if (!matchesPrefix(candidateWord, requiredPrefix)) {
-                continue;
-            }
-
-            if (!hasEnoughLetters(candidateWord, remainingLetters)) {
-                continue;
-            }
-
-            if (!maintainsSquareProperty(size,currentSquare, candidateWord, row)) {
-                continue;
-            }
-
-            currentSquare.add(candidateWord);
-            Map<Character, Integer> updatedLetters = consumeLetters(candidateWord, remainingLetters);
-
-            if (buildSquare(currentSquare, updatedLetters)) {
-                System.out.println("Found solution: " + currentSquare);
-                return true;
-            }
-            System.out.println("Backtracking...");
-            currentSquare.remove(currentSquare.size() - 1);
-        }
-
-        return false;
+    /**
+     * Installs a listener that receives node, backtrack and solution events of every search
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = Objects.requireNonNull(listener, "listener");
     }
 
-
-    private String getRequiredPrefix(List<String> currentSquare, int row) {
-        if (row == 0) {
-            return "";
-        }
-
-        StringBuilder prefix = new StringBuilder();
-        for (int col = 0; col < row; col++) {
-            prefix.append(currentSquare.get(col).charAt(row));
-        }
-        return prefix.toString();
+    /**
+     * Collects node and prune counts of every search into the metrics; null turns collection off
+     */
+    public void setMetrics(SolverMetrics metrics) {
+        this.metrics = metrics;
     }
 
-
- 
-    
-    protected boolean matchesPrefix(String word, String prefix) {
-        return word.startsWith(prefix);
+    /**
+     * Chooses how the search debits letters and orders the grid; every strategy finds the same
+     * squares, and all but MOST_CONSTRAINED find them in the same order
+     */
+    public void setStrategy(SearchStrategy strategy) {
+        this.strategy = Objects.requireNonNull(strategy, "strategy");
     }
 
-
-    protected boolean hasEnoughLetters(String word, Map<Character, Integer> remainingLetters) {
-        Map<Character, Integer> needed = getLetterFrequency(word);
-
-        for (Map.Entry<Character, Integer> entry : needed.entrySet()) {
-            char letter = entry.getKey();
-            int count = entry.getValue();
-
-            if (!remainingLetters.containsKey(letter) || remainingLetters.get(letter) < count) {
-                return false;
-            }
-        }
-
-        return true;
+    /**
+     * Restricts the search to squares whose diagonal holds these letters, as derived by
+     * SquareFeasibility; null removes the restriction
+     */
+    public void setRequiredDiagonal(LetterCounts requiredDiagonal) {
+        this.requiredDiagonal = requiredDiagonal;
     }
 
     /**
-     * Validates that placing this word maintains the word square property.
-     * Ensures that each partial column can potentially complete to a valid word.
+     * Restricts the searches to the word ids in the mask, so a shared index over a whole length
+     * bucket can serve a solve that may only use some of its words; null removes the restriction
      */
-    protected boolean maintainsSquareProperty(int size,List<String> currentSquare, String candidateWord, int row) {
-        // Check each column that extends beyond the current row
-        for (int col = row + 1; col < size; col++) {
-            String partialColumn = buildPartialColumn(currentSquare, candidateWord, row, col);
+    void setCandidateMask(CandidateMask candidateMask) {
+        this.candidateMask = candidateMask;
+    }
 
-            if (!canCompleteToValidWord(partialColumn)) {
-                return false;
-            }
-        }
+    /**
+     * Shares the letter bitset index built over the same prefix index with MOST_CONSTRAINED
+     * searches, which otherwise build their own
+     */
+    void setLetterIndex(LetterBitsetIndex letterIndex) {
+        this.letterIndex = letterIndex;
+    }
 
-        return true;
+    /**
+     * Sets a condition the searches poll every 1024 placements; once it returns true they stop
+     * early and wasStopped() reports it. Without one, a search stops when its thread is interrupted.
+     */
+    public void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
     }
 
     /**
-     * Builds the partial column word up to the current row
+     * Checks if the last build or buildParallel stopped early instead of exhausting the search
      */
-    protected String buildPartialColumn(List<String> currentSquare, String candidateWord, int row, int col) {
-        StringBuilder column = new StringBuilder();
+    public boolean wasStopped() {
+        return stopped;
+    }
 
-        // Add characters from previous rows
-        for (int r = 0; r < row; r++) {
-            column.append(currentSquare.get(r).charAt(col));
-        }
+    public Optional<List<String>> build(Map<Character, Integer> remainingLetters) {
+        return build(LetterCounts.fromMap(remainingLetters));
+    }
 
-        // Add character from current candidate word
-        column.append(candidateWord.charAt(col));
+    public Optional<List<String>> build(LetterCounts remainingLetters) {
+        SquareSearch search = newSearch(remainingLetters);
+        boolean found = search.next();
+        stopped = search.wasStopped();
+        return found ? Optional.of(search.square()) : Optional.empty();
+    }
 
-        return column.toString();
+    /**
+     * Lazily yields every square that can be built from the letters, in search order.
+     * The search only advances as elements are pulled, so limiting the stream stops it.
+     */
+    public Stream<List<String>> stream(LetterCounts remainingLetters) {
+        SquareSearch search = newSearch(remainingLetters);
+        Spliterator<List<String>> spliterator = Spliterators.spliteratorUnknownSize(search.iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
     }
 
     /**
-     * Checks if any valid word starts with this prefix
+     * Passes up to maxSolutions squares to the callback, stopping early once it returns false.
+     * Returns the number of squares delivered.
      */
-    private boolean canCompleteToValidWord(String prefix) {
-        for (String word : validWords) {
-            if (word.startsWith(prefix)) {
-                return true;
+    public int forEachSolution(LetterCounts remainingLetters, int maxSolutions, Predicate<List<String>> callback) {
+        if (maxSolutions <= 0) {
+            throw new IllegalArgumentException("maxSolutions must be positive");
+        }
+        SquareSearch search = newSearch(remainingLetters);
+        int delivered = 0;
+        while (delivered < maxSolutions && search.next()) {
+            delivered++;
+            if (!callback.test(search.square())) {
+                break;
             }
         }
-        return false;
+        stopped = search.wasStopped();
+        return delivered;
     }
 
     /**
-     * Returns a new map with the letters from the word consumed
+     * Returns up to limit squares with the highest summed row scores, best first, ties in
+     * search order. The search keeps the limit best squares found so far and prunes every
+     * branch that cannot beat the worst of them, so it does not enumerate every square.
+     * If it is stopped early the best squares found until then are returned.
      */
-    protected Map<Character, Integer> consumeLetters(String word, Map<Character, Integer> availableLetters) {
-        Map<Character, Integer> updated = new HashMap<>(availableLetters);
-
-        for (char c : word.toCharArray()) {
-            int count = updated.get(c);
-            if (count == 1) {
-                updated.remove(c);
-            } else {
-                updated.put(c, count - 1);
+    public List<RankedSquare> buildRanked(LetterCounts remainingLetters, WordScores scores, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        SquareSearch search = newSearch(remainingLetters);
+        search.setScores(scores);
+        // Best first; a square goes after those scoring the same, so ties stay in search order
+        List<RankedSquare> best = new ArrayList<>(limit + 1);
+        while (search.next()) {
+            double score = search.score();
+            int position = best.size();
+            while (position > 0 && best.get(position - 1).score() < score) {
+                position--;
+            }
+            best.add(position, new RankedSquare(search.square(), score));
+            if (best.size() > limit) {
+                best.remove(limit);
+            }
+            if (best.size() == limit) {
+                search.setScoreFloor(best.get(limit - 1).score());
             }
         }
+        stopped = search.wasStopped();
+        return best;
+    }
 
-        return updated;
+    /**
+     * Same result as build, but the first-row subtrees are searched in parallel on the pool
+     */
+    public Optional<List<String>> buildParallel(LetterCounts remainingLetters, ForkJoinPool pool) {
+        ParallelSquareSearch search = new ParallelSquareSearch(index, size, remainingLetters.in(index.getAlphabet()), candidateMask,
+                this::configure, stopCondition);
+        Optional<List<String>> square = search.find(pool);
+        stopped = search.wasStopped();
+        return square;
     }
 
+    private SquareSearch newSearch(LetterCounts remainingLetters) {
+        // The search reads the budget by letter code, so it must count in the index's alphabet
+        SquareSearch search = new SquareSearch(index, size, remainingLetters.in(index.getAlphabet()).copy());
+        configure(search);
+        return search;
+    }
 
-    private Map<Character, Integer> getLetterFrequency(String word) {
-        Map<Character, Integer> frequency = new HashMap<>();
-        for (char c : word.toCharArray()) {
-            frequency.put(c, frequency.getOrDefault(c, 0) + 1);
+    private void configure(SquareSearch search) {
+        search.setCandidateMask(candidateMask);
+        search.setLetterIndex(letterIndex);
+        search.setStrategy(strategy);
+        search.setListener(listener);
+        search.setMetrics(metrics);
+        if (stopCondition != null) {
+            search.setStopCondition(stopCondition);
+        }
+        if (requiredDiagonal != null) {
+            search.setRequiredDiagonal(requiredDiagonal.in(index.getAlphabet()));
         }
-        return frequency;
     }
-}
\ No newline at end of file
+}
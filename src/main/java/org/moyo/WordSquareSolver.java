@@ -1,106 +1,495 @@
 package org.moyo;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 
 public class WordSquareSolver {
 
     private final DictionaryLoader loader;
-
+    private final SolverStatistics statistics;
+    private SearchListener listener = SearchListener.NONE;
+    private SolveCache cache;
+    private SolutionStore store;
+    private SearchStrategy strategy = SearchStrategy.ROWS;
 
     public WordSquareSolver(DictionaryLoader loader) {
+        this(loader, new SolverStatistics());
+    }
+
+    /**
+     * Creates a solver that records the metrics of every solve into the shared statistics
+     */
+    public WordSquareSolver(DictionaryLoader loader, SolverStatistics statistics) {
         this.loader = loader;
+        this.statistics = statistics;
+    }
 
+    public SolverStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Installs a listener for the search events of subsequent solves; SearchListener.NONE turns tracing off
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = Objects.requireNonNull(listener, "listener");
+    }
+
+    /**
+     * Chooses how subsequent searches debit letters and order the grid; ROWS and SYMMETRIC_PAIRS
+     * find the same square, MOST_CONSTRAINED can find a different, equally valid one
+     */
+    public void setSearchStrategy(SearchStrategy strategy) {
+        this.strategy = Objects.requireNonNull(strategy, "strategy");
+    }
+
+    /**
+     * Answers solves from the cache when the same size and letters, in any order, were solved
+     * before on the same dictionary; null turns caching off
+     */
+    public void setCache(SolveCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Answers solves from the persistent store when the same size and letters were solved before
+     * on a dictionary with the same words, and adds every completed solve to it; null turns it off.
+     * The store holds the square found in row order, so MOST_CONSTRAINED solves do not use it.
+     */
+    public void setSolutionStore(SolutionStore store) {
+        this.store = store;
     }
 
     public List<String> solveWordSquare(int size, String sequence) {
-        validateInput(sequence);
+        return solve(size, sequence).square();
+    }
+
+    /**
+     * Solves on the given pool, splitting the search by first-row word.
+     * Returns the same square as the sequential solve.
+     */
+    public List<String> solveWordSquareParallel(int size, String sequence, ForkJoinPool pool) {
+        return solveParallel(size, sequence, pool).square();
+    }
+
+    /**
+     * Solves and returns the square together with the metrics of the solve
+     */
+    public SolveResult solve(int size, String sequence) {
+        return solve(size, sequence, null, Limits.NONE);
+    }
+
+    public SolveResult solveParallel(int size, String sequence, ForkJoinPool pool) {
+        return solve(size, sequence, Objects.requireNonNull(pool, "pool"), Limits.NONE);
+    }
+
+    /**
+     * Solves within the time budget; a search still running when it runs out stops and the
+     * result has status TIMED_OUT, with the metrics of the part searched
+     */
+    public SolveResult solve(int size, String sequence, Duration timeBudget) {
+        return solve(size, sequence, timeBudget, CancellationToken.NONE);
+    }
+
+    /**
+     * Solves until done or until the token is cancelled, which gives status CANCELLED
+     */
+    public SolveResult solve(int size, String sequence, CancellationToken token) {
+        return solve(size, sequence, null, Limits.of(null, token));
+    }
 
+    public SolveResult solve(int size, String sequence, Duration timeBudget, CancellationToken token) {
+        return solve(size, sequence, null, Limits.of(Objects.requireNonNull(timeBudget, "timeBudget"), token));
+    }
+
+    public SolveResult solveParallel(int size, String sequence, ForkJoinPool pool, Duration timeBudget, CancellationToken token) {
+        return solve(size, sequence, Objects.requireNonNull(pool, "pool"), Limits.of(timeBudget, token));
+    }
+
+    /**
+     * Returns up to limit squares with the highest summed word scores, best first, as loaded
+     * from the score column of the word list. The search is a branch and bound that never
+     * enumerates squares unable to make the top limit. Without scores every square scores 0
+     * and the first limit squares in search order are returned.
+     */
+    public RankedResult solveRanked(int size, String sequence, int limit) {
+        return solveRanked(size, sequence, limit, Limits.NONE);
+    }
+
+    /**
+     * Same as solveRanked, but stops after the time budget and returns the best squares found until then
+     */
+    public RankedResult solveRanked(int size, String sequence, int limit, Duration timeBudget) {
+        return solveRanked(size, sequence, limit, Limits.of(Objects.requireNonNull(timeBudget, "timeBudget"), CancellationToken.NONE));
+    }
+
+    private RankedResult solveRanked(int size, String sequence, int limit, Limits limits) {
+        validateInput(sequence);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        SolverMetrics metrics = new SolverMetrics(Math.max(size, 0));
         if (size <= 0) {
-            return List.of();
+            return record(new RankedResult(List.of(), SolveStatus.NO_SOLUTION, metrics));
         }
 
-        Map<Character, Integer> availableLetters = parseLetterFrequencies(sequence);
-        Set<String> validWords = filterValidWords(size, availableLetters);
+        DictionarySnapshot dictionary = loader.snapshot();
+        LetterCounts availableLetters = metrics.time(SolverMetrics.Phase.PARSE, () -> parseLetterFrequencies(dictionary, sequence));
+        SquareFeasibility feasibility = metrics.time(SolverMetrics.Phase.PARSE, () -> SquareFeasibility.check(size, availableLetters));
+        if (!feasibility.isFeasible()) {
+            metrics.setInfeasibleReason(feasibility.getReason());
+            return record(new RankedResult(List.of(), SolveStatus.NO_SOLUTION, metrics));
+        }
 
-        if (validWords.isEmpty()) {
-            return List.of();
+        long[] validWords = metrics.time(SolverMetrics.Phase.FILTER, () -> filterValidWords(dictionary, size, availableLetters));
+        metrics.setCandidateWords(LetterBitsetIndex.cardinality(validWords));
+        WordSquareBuilder builder = metrics.time(SolverMetrics.Phase.INDEX, () -> newBuilder(dictionary, size, new CandidateMask(validWords)));
+        WordScores scores = metrics.time(SolverMetrics.Phase.INDEX, () -> dictionary.getScoresForSize(size));
+        builder.setMetrics(metrics);
+        builder.setRequiredDiagonal(feasibility.getRequiredDiagonal());
+        if (limits != Limits.NONE) {
+            builder.setStopCondition(limits::reached);
         }
+        List<RankedSquare> squares = metrics.time(SolverMetrics.Phase.SEARCH, () -> builder.buildRanked(availableLetters, scores, limit));
 
-        return buildSquare(size,validWords,availableLetters);
+        SolveStatus status = builder.wasStopped() ? stoppedStatus(limits)
+                : squares.isEmpty() ? SolveStatus.NO_SOLUTION : SolveStatus.SOLVED;
+        return record(new RankedResult(squares, status, metrics));
     }
 
     /**
-     * Validates the input parameters
+     * Finds a word rectangle: rows words of length columns reading across and columns words of
+     * length rows reading down, with no word used twice. Rows and columns are searched in
+     * their own length buckets; each cell of the grid uses one letter of the sequence.
      */
-    private void validateInput(String sequence) {
+    public SolveResult solveRectangle(int rows, int columns, String sequence) {
+        return solveRectangle(rows, columns, sequence, Limits.NONE);
+    }
 
-        if (sequence == null || sequence.isEmpty() ) {
-            throw new IllegalArgumentException("Sequence must not be null or empty");
+    /**
+     * Same as solveRectangle, but stops once the time budget runs out, with status TIMED_OUT,
+     * or the token is cancelled, with status CANCELLED; a null budget never runs out
+     */
+    public SolveResult solveRectangle(int rows, int columns, String sequence, Duration timeBudget, CancellationToken token) {
+        return solveRectangle(rows, columns, sequence, Limits.of(timeBudget, token));
+    }
+
+    private SolveResult solveRectangle(int rows, int columns, String sequence, Limits limits) {
+        validateInput(sequence);
+        SolverMetrics metrics = new SolverMetrics(Math.max(rows, 0));
+
+        if (rows <= 0 || columns <= 0) {
+            return record(List.of(), metrics);
         }
-        sequence =sequence.toLowerCase();
-        for (char c : sequence.toCharArray()) {
-            if (!Character.isLetter(c)) {
-                throw new IllegalArgumentException("Sequence must only contain letters");
-            }
+
+        DictionarySnapshot dictionary = loader.snapshot();
+        LetterCounts availableLetters = metrics.time(SolverMetrics.Phase.PARSE, () -> parseLetterFrequencies(dictionary, sequence));
+        if (availableLetters.total() < rows * columns) {
+            metrics.setInfeasibleReason(availableLetters.total() + " letters cannot fill " + rows * columns + " cells");
+            return record(List.of(), metrics);
         }
+
+        long[] rowWords = metrics.time(SolverMetrics.Phase.FILTER, () -> filterValidWords(dictionary, columns, availableLetters));
+        long[] columnWords = rows == columns
+                ? rowWords
+                : metrics.time(SolverMetrics.Phase.FILTER, () -> filterValidWords(dictionary, rows, availableLetters));
+        int rowCandidates = LetterBitsetIndex.cardinality(rowWords);
+        int columnCandidates = rows == columns ? 0 : LetterBitsetIndex.cardinality(columnWords);
+        metrics.setCandidateWords(rowCandidates + columnCandidates);
+        if (rowCandidates == 0 || (rows != columns && columnCandidates == 0)) {
+            return record(List.of(), metrics);
+        }
+
+        RectangleSearch search = metrics.time(SolverMetrics.Phase.INDEX, () -> {
+            CandidateMask rowMask = new CandidateMask(rowWords);
+            return new RectangleSearch(dictionary.getPrefixIndexForSize(columns), rowMask,
+                    dictionary.getPrefixIndexForSize(rows), rows == columns ? rowMask : new CandidateMask(columnWords),
+                    availableLetters.copy());
+        });
+        search.setMetrics(metrics);
+        if (limits.reached()) {
+            return record(new SolveResult(List.of(), stoppedStatus(limits), metrics));
+        }
+        if (limits != Limits.NONE) {
+            search.setStopCondition(limits::reached);
+        }
+        boolean found = metrics.time(SolverMetrics.Phase.SEARCH, search::next);
+        return record(new SolveResult(found ? search.rows() : List.of(),
+                found ? SolveStatus.SOLVED : search.wasStopped() ? stoppedStatus(limits) : SolveStatus.NO_SOLUTION, metrics));
     }
 
-    private Map<Character, Integer> parseLetterFrequencies(String sequence) {
-        Map<Character, Integer> frequencies = new HashMap<>();
+    /**
+     * Finds a double word square, whose columns are different words from its rows
+     */
+    public SolveResult solveDoubleSquare(int size, String sequence) {
+        return solveRectangle(size, size, sequence);
+    }
 
-        for (char c : sequence.trim().toCharArray()) {
-            if (c != ' ') {
-                frequencies.put(c, frequencies.getOrDefault(c, 0) + 1);
-            }
+    /**
+     * Lazily yields every word square for the sequence.
+     * Squares are found on demand, so callers can read the first few without enumerating all.
+     */
+    public Stream<List<String>> streamWordSquares(int size, String sequence) {
+        validateInput(sequence);
+
+        if (size <= 0) {
+            return Stream.empty();
+        }
+
+        DictionarySnapshot dictionary = loader.snapshot();
+        LetterCounts availableLetters = parseLetterFrequencies(dictionary, sequence);
+        SquareFeasibility feasibility = SquareFeasibility.check(size, availableLetters);
+        if (!feasibility.isFeasible()) {
+            return Stream.empty();
+        }
+        CandidateMask validWords = new CandidateMask(filterValidWords(dictionary, size, availableLetters));
+
+        WordSquareBuilder builder = newBuilder(dictionary, size, validWords);
+        builder.setRequiredDiagonal(feasibility.getRequiredDiagonal());
+        return builder.stream(availableLetters);
+    }
+
+    /**
+     * Returns up to maxSolutions word squares for the sequence, in search order
+     */
+    public List<List<String>> solveAllWordSquares(int size, String sequence, int maxSolutions) {
+        return solveAll(size, sequence, maxSolutions).squares();
+    }
+
+    /**
+     * Returns up to maxSolutions word squares for the sequence, in search order, with the
+     * metrics of the search
+     */
+    public EnumerationResult solveAll(int size, String sequence, int maxSolutions) {
+        return solveAll(size, sequence, maxSolutions, Limits.NONE);
+    }
+
+    /**
+     * Same as solveAll, but stops once the time budget runs out or the token is cancelled and
+     * returns the squares found until then; a null budget never runs out
+     */
+    public EnumerationResult solveAll(int size, String sequence, int maxSolutions, Duration timeBudget, CancellationToken token) {
+        return solveAll(size, sequence, maxSolutions, Limits.of(timeBudget, token));
+    }
+
+    private EnumerationResult solveAll(int size, String sequence, int maxSolutions, Limits limits) {
+        validateInput(sequence);
+        if (maxSolutions <= 0) {
+            throw new IllegalArgumentException("maxSolutions must be positive");
+        }
+        SolverMetrics metrics = new SolverMetrics(Math.max(size, 0));
+        if (size <= 0) {
+            return record(new EnumerationResult(List.of(), SolveStatus.NO_SOLUTION, metrics));
         }
 
-        return frequencies;
+        DictionarySnapshot dictionary = loader.snapshot();
+        LetterCounts availableLetters = metrics.time(SolverMetrics.Phase.PARSE, () -> parseLetterFrequencies(dictionary, sequence));
+        SquareFeasibility feasibility = metrics.time(SolverMetrics.Phase.PARSE, () -> SquareFeasibility.check(size, availableLetters));
+        if (!feasibility.isFeasible()) {
+            metrics.setInfeasibleReason(feasibility.getReason());
+            return record(new EnumerationResult(List.of(), SolveStatus.NO_SOLUTION, metrics));
+        }
+
+        long[] validWords = metrics.time(SolverMetrics.Phase.FILTER, () -> filterValidWords(dictionary, size, availableLetters));
+        metrics.setCandidateWords(LetterBitsetIndex.cardinality(validWords));
+        WordSquareBuilder builder = metrics.time(SolverMetrics.Phase.INDEX, () -> newBuilder(dictionary, size, new CandidateMask(validWords)));
+        builder.setMetrics(metrics);
+        builder.setRequiredDiagonal(feasibility.getRequiredDiagonal());
+        if (limits.reached()) {
+            return record(new EnumerationResult(List.of(), stoppedStatus(limits), metrics));
+        }
+        if (limits != Limits.NONE) {
+            builder.setStopCondition(limits::reached);
+        }
+        List<List<String>> squares = new ArrayList<>();
+        metrics.time(SolverMetrics.Phase.SEARCH, () -> builder.forEachSolution(availableLetters, maxSolutions, squares::add));
+
+        SolveStatus status = builder.wasStopped() ? stoppedStatus(limits)
+                : squares.isEmpty() ? SolveStatus.NO_SOLUTION : SolveStatus.SOLVED;
+        return record(new EnumerationResult(squares, status, metrics));
+    }
+
+    /**
+     * Time budget and cancellation token of one solve, polled by the search through its stop condition
+     */
+    private record Limits(long startNanos, long budgetNanos, CancellationToken token) {
+
+        static final Limits NONE = new Limits(0, Long.MAX_VALUE, CancellationToken.NONE);
+
+        static Limits of(Duration timeBudget, CancellationToken token) {
+            return new Limits(System.nanoTime(), timeBudget == null ? Long.MAX_VALUE : timeBudget.toNanos(),
+                    Objects.requireNonNull(token, "token"));
+        }
+
+        boolean cancelled() {
+            return token.isCancelled() || Thread.currentThread().isInterrupted();
+        }
+
+        boolean timedOut() {
+            return budgetNanos != Long.MAX_VALUE && System.nanoTime() - startNanos >= budgetNanos;
+        }
+
+        boolean reached() {
+            return cancelled() || timedOut();
+        }
     }
 
+    private SolveResult solve(int size, String sequence, ForkJoinPool pool, Limits limits) {
+        validateInput(sequence);
+        SolverMetrics metrics = new SolverMetrics(Math.max(size, 0));
+
+        if (size <= 0) {
+            return record(List.of(), metrics);
+        }
 
-    private Set<String> filterValidWords(int size, Map<Character, Integer> availableLetters) {
-        Set<String> dictionaryWords = loader.getDictionaryForSize(size);
-        Set<String> validWords = new HashSet<>();
+        // One snapshot for the whole solve, so a concurrent reload cannot mix two dictionaries
+        DictionarySnapshot dictionary = loader.snapshot();
+        LetterCounts availableLetters = metrics.time(SolverMetrics.Phase.PARSE, () -> parseLetterFrequencies(dictionary, sequence));
+        SquareFeasibility feasibility = metrics.time(SolverMetrics.Phase.PARSE, () -> SquareFeasibility.check(size, availableLetters));
+        if (!feasibility.isFeasible()) {
+            metrics.setInfeasibleReason(feasibility.getReason());
+            return record(List.of(), metrics);
+        }
 
-        for (String word : dictionaryWords) {
-            if (canFormWord(word, availableLetters)) {
-                validWords.add(word);
+        SolveCache.Key key = null;
+        if (cache != null) {
+            key = SolveCache.key(dictionary.getVersion(), size, availableLetters, strategy);
+            Optional<List<String>> cached = cache.get(key);
+            if (cached.isPresent()) {
+                metrics.setCacheHit(true);
+                return record(cached.get(), metrics);
             }
         }
 
-        return validWords;
+        SolutionStore store = strategy == SearchStrategy.MOST_CONSTRAINED ? null : this.store;
+        if (store != null) {
+            Optional<List<String>> stored = store.get(dictionary.getContentHash(), size, availableLetters);
+            if (stored.isPresent()) {
+                metrics.setStoreHit(true);
+                if (key != null) {
+                    cache.put(key, stored.get());
+                }
+                return record(stored.get(), metrics);
+            }
+        }
+
+        long[] validWords = metrics.time(SolverMetrics.Phase.FILTER, () -> filterValidWords(dictionary, size, availableLetters));
+        int candidateWords = LetterBitsetIndex.cardinality(validWords);
+        metrics.setCandidateWords(candidateWords);
+
+        SolveResult result = candidateWords == 0
+                ? new SolveResult(List.of(), metrics)
+                : buildSquare(dictionary, size, validWords, availableLetters, feasibility, pool, limits, metrics);
+        // A search that stopped early and found nothing proves nothing, so it is not cached
+        if (result.status() == SolveStatus.SOLVED || result.status() == SolveStatus.NO_SOLUTION) {
+            if (key != null) {
+                cache.put(key, result.square());
+            }
+            if (store != null) {
+                store.put(dictionary.getContentHash(), size, availableLetters, result.square());
+            }
+        }
+        return record(result);
+    }
+
+    private SolveResult record(List<String> square, SolverMetrics metrics) {
+        return record(new SolveResult(square, metrics));
+    }
+
+    private SolveResult record(SolveResult result) {
+        statistics.record(result);
+        return result;
     }
 
+    private EnumerationResult record(EnumerationResult result) {
+        List<String> first = result.squares().isEmpty() ? List.of() : result.squares().get(0);
+        statistics.record(new SolveResult(first, result.status(), result.metrics()));
+        return result;
+    }
 
-    private boolean canFormWord(String word, Map<Character, Integer> availableLetters) {
-        Map<Character, Integer> wordFrequency = getLetterFrequency(word);
+    private RankedResult record(RankedResult result) {
+        List<String> best = result.squares().isEmpty() ? List.of() : result.squares().get(0).square();
+        statistics.record(new SolveResult(best, result.status(), result.metrics()));
+        return result;
+    }
 
-        for (Map.Entry<Character, Integer> entry : wordFrequency.entrySet()) {
-            char letter = entry.getKey();
-            int needed = entry.getValue();
+    /**
+     * Validates the input parameters
+     */
+    private void validateInput(String sequence) {
 
-            if (!availableLetters.containsKey(letter) || availableLetters.get(letter) < needed) {
-                return false;
+        if (sequence == null || sequence.isEmpty() ) {
+            throw new IllegalArgumentException("Sequence must not be null or empty");
+        }
+        sequence =sequence.toLowerCase(Locale.ROOT);
+        for (char c : sequence.toCharArray()) {
+            if (!Character.isLetter(c)) {
+                throw new IllegalArgumentException("Sequence must only contain letters");
             }
         }
-        return true;
     }
 
+    /**
+     * Counts the letters of the sequence in the alphabet of the dictionary, lower-cased the same
+     * way the loader lower-cases words. A letter outside the alphabet is left out, like any other
+     * surplus letter, as no word of the dictionary can use it.
+     */
+    private LetterCounts parseLetterFrequencies(DictionarySnapshot dictionary, String sequence) {
+        String letters = sequence.trim().toLowerCase(Locale.ROOT);
+        Alphabet alphabet = dictionary.getAlphabet();
+        return LetterCounts.of(alphabet, letters);
+    }
 
-    private List<String> buildSquare(int size, Set<String> validWords, Map<Character, Integer> availableLetters) {
-        WordSquareBuilder builder = new WordSquareBuilder(size, validWords);
-        Optional<List<String>> result = builder.build(availableLetters);
 
-        return result.orElse(List.of());
+    /**
+     * Returns the bitset of the ids, in the prefix index of the size, of the words that can be
+     * formed from the available letters
+     */
+    long[] filterValidWords(int size, LetterCounts availableLetters) {
+        DictionarySnapshot dictionary = loader.snapshot();
+        return filterValidWords(dictionary, size, availableLetters.in(dictionary.getAlphabet()));
+    }
+
+    private long[] filterValidWords(DictionarySnapshot dictionary, int size, LetterCounts availableLetters) {
+        return dictionary.getLetterIndexForSize(size).filter(availableLetters);
     }
 
 
-    private Map<Character, Integer> getLetterFrequency(String word) {
-        Map<Character, Integer> frequency = new HashMap<>();
-        for (char c : word.toCharArray()) {
-            frequency.put(c, frequency.getOrDefault(c, 0) + 1);
+    private SolveResult buildSquare(DictionarySnapshot dictionary, int size, long[] validWords, LetterCounts availableLetters, SquareFeasibility feasibility,
+                                    ForkJoinPool pool, Limits limits, SolverMetrics metrics) {
+        if (limits.reached()) {
+            return new SolveResult(List.of(), stoppedStatus(limits), metrics);
+        }
+        // The index of the whole length bucket is shared by every solve; only the mask is per solve
+        WordSquareBuilder builder = metrics.time(SolverMetrics.Phase.INDEX, () -> newBuilder(dictionary, size, new CandidateMask(validWords)));
+        builder.setMetrics(metrics);
+        builder.setRequiredDiagonal(feasibility.getRequiredDiagonal());
+        if (limits != Limits.NONE) {
+            builder.setStopCondition(limits::reached);
+        }
+        Optional<List<String>> result = metrics.time(SolverMetrics.Phase.SEARCH, () -> pool == null
+                ? builder.build(availableLetters)
+                : builder.buildParallel(availableLetters, pool));
+
+        if (result.isPresent()) {
+            return new SolveResult(result.get(), SolveStatus.SOLVED, metrics);
         }
-        return frequency;
+        return new SolveResult(List.of(), builder.wasStopped() ? stoppedStatus(limits) : SolveStatus.NO_SOLUTION, metrics);
+    }
+
+    private static SolveStatus stoppedStatus(Limits limits) {
+        return limits.cancelled() ? SolveStatus.CANCELLED : SolveStatus.TIMED_OUT;
+    }
+
+    private WordSquareBuilder newBuilder(DictionarySnapshot dictionary, int size, CandidateMask validWords) {
+        WordSquareBuilder builder = new WordSquareBuilder(size, dictionary.getPrefixIndexForSize(size));
+        builder.setCandidateMask(validWords);
+        builder.setLetterIndex(dictionary.getLetterIndexForSize(size));
+        builder.setSearchListener(listener);
+        builder.setStrategy(strategy);
+        return builder;
     }
-}
\ No newline at end of file
+}
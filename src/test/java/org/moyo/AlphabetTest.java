@@ -0,0 +1,79 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlphabetTest {
+
+    @Test
+    @DisplayName("Given letters in any order, when creating an alphabet, then number them densely in character order")
+    void givenUnorderedLetters_whenCreatingAlphabet_thenNumberThemInCharacterOrder() {
+        // When
+        Alphabet alphabet = Alphabet.of("γαβα");
+
+        // Then
+        assertEquals(3, alphabet.size());
+        assertEquals(0, alphabet.code('α'));
+        assertEquals(2, alphabet.code('γ'));
+        assertEquals(-1, alphabet.code('a'));
+        assertEquals('β', alphabet.letter(1));
+        assertTrue(alphabet.contains("γαβ"));
+        assertFalse(alphabet.contains("γαδ"));
+    }
+
+    @Test
+    @DisplayName("Given more than 64 letters, when creating an alphabet, then throw IllegalArgumentException")
+    void givenTooManyLetters_whenCreatingAlphabet_thenThrowIllegalArgumentException() {
+        // Given
+        String letters = IntStream.range(0, Alphabet.MAX_SIZE + 1)
+                .mapToObj(i -> String.valueOf((char) ('Ѐ' + i)))
+                .collect(Collectors.joining());
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> Alphabet.of(letters));
+    }
+
+    @Test
+    @DisplayName("Given Nordic words, when deriving the alphabet, then keep only the lower-case letters they use")
+    void givenNordicWords_whenDerivingAlphabet_thenKeepLowerCaseLettersUsed() {
+        // Given
+        List<Set<String>> buckets = List.of(
+                WordBucket.pack(2, List.of("øl", "på", "æg")),
+                Set.of("sø-", "x1y"));
+
+        // When
+        Alphabet alphabet = Alphabet.derive(buckets);
+
+        // Then
+        assertEquals(Alphabet.of("ølpåægsxy"), alphabet);
+        assertEquals(alphabet.size() - 1, alphabet.code('ø'));
+    }
+
+    @Test
+    @DisplayName("Given Hebrew words, when deriving the alphabet, then keep the letters of a script without case")
+    void givenHebrewWords_whenDerivingAlphabet_thenKeepCaselessLetters() {
+        // Given
+        List<Set<String>> buckets = List.of(Set.of("אב", "בא"));
+
+        // When
+        Alphabet alphabet = Alphabet.derive(buckets);
+
+        // Then
+        assertEquals(Alphabet.of("אב"), alphabet);
+    }
+
+    @Test
+    @DisplayName("Given no words, when deriving the alphabet, then fall back to a-z")
+    void givenNoWords_whenDerivingAlphabet_thenFallBackToLatin() {
+        // When & Then
+        assertEquals(Alphabet.LATIN, Alphabet.derive(List.of()));
+        assertEquals(26, Alphabet.LATIN.size());
+    }
+}
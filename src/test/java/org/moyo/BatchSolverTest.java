@@ -0,0 +1,50 @@
+package org.moyo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSolverTest {
+
+    static DictionaryLoader loader = new DictionaryLoader();
+
+    @BeforeAll
+    static void beforeTests() {
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+    }
+
+    @Test
+    @DisplayName("Given puzzles on several workers, when running a batch, then write one JSON line per puzzle in input order")
+    void givenPuzzlesOnSeveralWorkers_whenRunningBatch_thenWriteJsonLinesInInputOrder() throws IOException {
+        // Given
+        String input = """
+                # challenge cases
+                4 aaccdeeeemmnnnoo
+                first 4 nnnoommeeeeccdaa
+
+                4 abcdefghllmmnnoo
+                bad-size x aaccdeeeemmnnnoo
+                """;
+        StringWriter output = new StringWriter();
+
+        // When
+        BatchSolver.Summary summary = new BatchSolver(new WordSquareSolver(loader), 3, 2)
+                .run(new BufferedReader(new StringReader(input)), output);
+
+        // Then
+        String[] lines = output.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"2\",\"size\":4,\"sequence\":\"aaccdeeeemmnnnoo\",\"solved\":true,\"square\":[\"moan\",\"once\",\"acme\",\"need\"]"));
+        assertTrue(lines[1].startsWith("{\"id\":\"first\","));
+        assertTrue(lines[2].contains("\"solved\":false,\"square\":[]"));
+        assertEquals("{\"id\":\"bad-size\",\"error\":\"Size must be a valid integer\"}", lines[3]);
+        assertEquals(new BatchSolver.Summary(4, 2, 1, summary.millis()), summary);
+    }
+}
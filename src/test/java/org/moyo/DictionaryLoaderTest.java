@@ -3,9 +3,18 @@ package org.moyo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -117,4 +126,293 @@ class DictionaryLoaderTest {
         assertThrows(RuntimeException.class, () -> loader.getDictionaryForSize(4));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Given a word list with a score column, when loading it, then keep each word's highest score")
+    void givenScoredWordList_whenLoadFromTextFile_thenKeepHighestScorePerWord(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path wordList = Files.writeString(tempDir.resolve("scored.txt"),
+                "moan\t120\nonce,3.5\nACME 7\nneed 2\nneed 9\nice cream\n", StandardCharsets.UTF_8);
+
+        // When
+        loader.loadFromTextFile(wordList.toString());
+
+        // Then
+        DictionarySnapshot snapshot = loader.snapshot();
+        assertTrue(snapshot.hasScores());
+        assertEquals(Set.of("acme", "moan", "need", "once"), loader.getDictionaryForSize(4));
+        assertEquals(Set.of("ice cream"), loader.getDictionaryForSize(9));
+        PrefixIndex index = snapshot.getPrefixIndexForSize(4);
+        WordScores scores = snapshot.getScoresForSize(4);
+        assertEquals(7f, scores.score(index.rangeStart(index.find("acme"))));
+        assertEquals(120f, scores.score(index.rangeStart(index.find("moan"))));
+        assertEquals(9f, scores.score(index.rangeStart(index.find("need"))));
+        assertEquals(3.5f, scores.score(index.rangeStart(index.find("once"))));
+        assertEquals(120f, scores.bestBelow(PrefixIndex.ROOT));
+    }
+
+    @Test
+    @DisplayName("Given a scored word list, when compiled and loaded, then keep the scores, also through a second compile")
+    void givenScoredWordList_whenCompiledAndLoaded_thenKeepScores(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path wordList = Files.writeString(tempDir.resolve("scored.txt"),
+                "moan\t120\nonce,3.5\nacme 7\nneed 9\nmoon\n", StandardCharsets.UTF_8);
+        loader.loadFromTextFile(wordList.toString());
+        String compiledPath = tempDir.resolve("scored" + DictionaryLoader.COMPILED_EXTENSION).toString();
+        loader.compileToBinaryFile(compiledPath);
+
+        // When
+        DictionaryLoader compiledLoader = new DictionaryLoader();
+        compiledLoader.load(compiledPath);
+        String recompiledPath = tempDir.resolve("recompiled" + DictionaryLoader.COMPILED_EXTENSION).toString();
+        compiledLoader.compileToBinaryFile(recompiledPath);
+        DictionaryLoader recompiledLoader = new DictionaryLoader();
+        recompiledLoader.load(recompiledPath);
+
+        // Then
+        for (DictionaryLoader compiled : List.of(compiledLoader, recompiledLoader)) {
+            DictionarySnapshot snapshot = compiled.snapshot();
+            assertTrue(snapshot.hasScores());
+            PrefixIndex index = snapshot.getPrefixIndexForSize(4);
+            WordScores scores = snapshot.getScoresForSize(4);
+            assertEquals(120f, scores.score(index.rangeStart(index.find("moan"))));
+            assertEquals(3.5f, scores.score(index.rangeStart(index.find("once"))));
+            assertEquals(0f, scores.score(index.rangeStart(index.find("moon"))));
+            assertEquals(120f, scores.bestBelow(PrefixIndex.ROOT));
+        }
+    }
+
+    @Test
+    @DisplayName("Given an unscored word list, when compiled and loaded, then report no scores")
+    void givenUnscoredWordList_whenCompiledAndLoaded_thenReportNoScores(@TempDir Path tempDir) {
+        // Given
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        String compiledPath = tempDir.resolve("test" + DictionaryLoader.COMPILED_EXTENSION).toString();
+        loader.compileToBinaryFile(compiledPath);
+
+        // When
+        DictionaryLoader compiledLoader = new DictionaryLoader();
+        compiledLoader.load(compiledPath);
+
+        // Then
+        assertFalse(compiledLoader.snapshot().hasScores());
+        assertEquals(0f, compiledLoader.snapshot().getScoresForSize(4).bestBelow(PrefixIndex.ROOT));
+    }
+
+    @Test
+    @DisplayName("Given a compiled dictionary, when loading it, then expose the same words grouped by length")
+    void givenCompiledDictionary_whenLoadFromBinaryFile_thenExposeSameWords(@TempDir Path tempDir) {
+        // Given
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        String compiledPath = tempDir.resolve("test" + DictionaryLoader.COMPILED_EXTENSION).toString();
+        loader.compileToBinaryFile(compiledPath);
+
+        // When
+        DictionaryLoader compiledLoader = new DictionaryLoader();
+        compiledLoader.load(compiledPath);
+
+        // Then
+        assertEquals(loader.getWordSizeToDictionaryMap(), compiledLoader.getWordSizeToDictionaryMap());
+        Set<String> size7Words = compiledLoader.getDictionaryForSize(7);
+        assertTrue(size7Words.contains("bravado"));
+        assertFalse(size7Words.contains("bravada"));
+        assertFalse(size7Words.contains("brava"));
+    }
+
+    @Test
+    @DisplayName("Given the same words from text and compiled files, when hashing the content, then the hashes match and differ from other words")
+    void givenSameWordsFromTextAndCompiledFiles_whenGettingContentHash_thenHashesMatch(@TempDir Path tempDir) throws IOException {
+        // Given
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        String compiledPath = tempDir.resolve("test" + DictionaryLoader.COMPILED_EXTENSION).toString();
+        loader.compileToBinaryFile(compiledPath);
+        DictionaryLoader compiledLoader = new DictionaryLoader();
+        compiledLoader.load(compiledPath);
+        Path changed = Files.writeString(tempDir.resolve("changed.txt"),
+                Files.readString(Path.of("src/test/resources/TestWord.txt")) + "\nzyzzyva\n", StandardCharsets.UTF_8);
+        DictionaryLoader changedLoader = new DictionaryLoader();
+        changedLoader.loadFromTextFile(changed.toString());
+
+        // When
+        long hash = loader.snapshot().getContentHash();
+
+        // Then
+        assertEquals(hash, compiledLoader.snapshot().getContentHash());
+        assertNotEquals(hash, changedLoader.snapshot().getContentHash());
+    }
+
+    @Test
+    @DisplayName("Given a compiled dictionary, when getting the prefix index, then restore the prebuilt trie")
+    void givenCompiledDictionary_whenGettingPrefixIndex_thenRestorePrebuiltTrie(@TempDir Path tempDir) {
+        // Given
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        String compiledPath = tempDir.resolve("test" + DictionaryLoader.COMPILED_EXTENSION).toString();
+        loader.compileToBinaryFile(compiledPath);
+        DictionaryLoader compiledLoader = new DictionaryLoader();
+        compiledLoader.loadFromBinaryFile(compiledPath);
+
+        // When
+        PrefixIndex index = compiledLoader.getPrefixIndexForSize(4);
+
+        // Then
+        assertEquals(List.of("acme", "boat", "moan", "need", "once"), index.wordsWithPrefix(""));
+        assertEquals(List.of("moan"), index.wordsWithPrefix("mo"));
+        assertSame(index, compiledLoader.getPrefixIndexForSize(4));
+        assertEquals(loader.getPrefixIndexForSize(4).wordsWithPrefix(""), index.wordsWithPrefix(""));
+    }
+
+    @Test
+    @DisplayName("Given a Nordic word list, when compiling and loading it, then restore its alphabet and index")
+    void givenNordicWordList_whenCompiledAndLoaded_thenRestoreAlphabetAndIndex(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path wordList = Files.writeString(tempDir.resolve("nordic.txt"), "bø\nøl\nÅr\nbål\n", StandardCharsets.UTF_8);
+        loader.loadFromTextFile(wordList.toString());
+        String compiledPath = tempDir.resolve("nordic" + DictionaryLoader.COMPILED_EXTENSION).toString();
+        loader.compileToBinaryFile(compiledPath);
+
+        // When
+        DictionaryLoader compiledLoader = new DictionaryLoader();
+        compiledLoader.load(compiledPath);
+
+        // Then
+        assertEquals(Alphabet.of("bølår"), compiledLoader.snapshot().getAlphabet());
+        assertEquals(loader.getWordSizeToDictionaryMap(), compiledLoader.getWordSizeToDictionaryMap());
+        assertTrue(compiledLoader.getDictionaryForSize(2).contains("år"));
+        assertFalse(compiledLoader.getDictionaryForSize(2).contains("ar"));
+        assertEquals(List.of("bø", "år", "øl"), compiledLoader.getPrefixIndexForSize(2).wordsWithPrefix(""));
+    }
+
+    @Test
+    @DisplayName("Given a file that is not a compiled dictionary, when loading it as binary, then throw RuntimeException")
+    void givenInvalidCompiledFile_whenLoadFromBinaryFile_thenThrowRuntimeException(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path invalid = Files.writeString(tempDir.resolve("invalid" + DictionaryLoader.COMPILED_EXTENSION), "moan\nonce\n");
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> loader.loadFromBinaryFile(invalid.toString()));
+        assertThrows(RuntimeException.class, () -> loader.loadFromBinaryFile(tempDir.resolve("missing.wsd").toString()));
+    }
+
+    @Test
+    @DisplayName("Given a taken snapshot, when reloading in the background, then the old snapshot is unchanged and the new one is published")
+    void givenTakenSnapshot_whenReloadingAsync_thenOldSnapshotIsUnchangedAndNewOneIsPublished(@TempDir Path tempDir) throws IOException {
+        // Given
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        DictionarySnapshot before = loader.snapshot();
+        Path replacement = Files.writeString(tempDir.resolve("replacement.txt"), "tab\nart\n");
+
+        // When
+        DictionarySnapshot after = loader.reloadAsync(replacement.toString(), 3, 3, Runnable::run).join();
+
+        // Then
+        assertSame(after, loader.snapshot());
+        assertNotEquals(before.getVersion(), after.getVersion());
+        assertEquals(Set.of("art", "tab"), after.getDictionaryForSize(3));
+        assertThrows(RuntimeException.class, () -> after.getDictionaryForSize(4));
+        assertTrue(before.getDictionaryForSize(4).contains("moan"));
+        assertEquals(2, after.getPrefixIndexForSize(3).size());
+    }
+
+    @Test
+    @DisplayName("Given a snapshot, when modifying its words, then throw UnsupportedOperationException")
+    void givenSnapshot_whenModifyingWords_thenThrowUnsupportedOperationException() {
+        // Given
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        DictionarySnapshot snapshot = loader.snapshot();
+
+        // When & Then
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getDictionaryForSize(4).add("zzzz"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getWordSizeToDictionaryMap().remove(4));
+    }
+
+    @Test
+    @DisplayName("Given a failing reload, when it completes, then keep the current snapshot")
+    void givenFailingReload_whenItCompletes_thenKeepCurrentSnapshot() {
+        // Given
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        DictionarySnapshot before = loader.snapshot();
+
+        // When
+        assertThrows(RuntimeException.class,
+                () -> loader.reloadAsync("/non/existent/file.txt", 2, 8, Runnable::run).join());
+
+        // Then
+        assertSame(before, loader.snapshot());
+    }
+
+    @Test
+    @DisplayName("Given a gzip-compressed word list, when loading it, then inflate it and normalise the words")
+    void givenGzipWordList_whenLoadFromTextFile_thenInflateAndNormaliseWords(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path compressed = tempDir.resolve("words.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            out.write("  Moan\r\nonce\n\nACME\nneed\nmoan\nÉtÉ\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // When
+        loader.loadFromTextFile(compressed.toString());
+
+        // Then
+        assertEquals(Set.of("moan", "once", "acme", "need"), loader.getDictionaryForSize(4));
+        assertEquals(Set.of("été"), loader.getDictionaryForSize(3));
+        LoadStatistics statistics = loader.snapshot().getLoadStatistics();
+        assertEquals(6, statistics.lines());
+        assertEquals(5, statistics.words());
+        assertEquals(Files.size(compressed), statistics.bytes());
+    }
+
+    @Test
+    @DisplayName("Given a word list larger than one chunk, when loading it, then split on line breaks and keep every word")
+    void givenMultiChunkWordList_whenLoadFromTextFile_thenSplitOnLineBreaksAndKeepEveryWord(@TempDir Path tempDir) throws IOException {
+        // Given
+        StringBuilder text = new StringBuilder();
+        int words = 0;
+        for (char a = 'a'; a <= 'z'; a++) {
+            for (char b = 'a'; b <= 'z'; b++) {
+                for (char c = 'a'; c <= 'z'; c++) {
+                    for (char d = 'a'; d <= 'p'; d++) {
+                        text.append(a).append(b).append(c).append(d).append("xyz\n");
+                        words++;
+                    }
+                }
+            }
+        }
+        text.append("UPPER");
+        Path wordList = Files.writeString(tempDir.resolve("large.txt"), text);
+
+        // When
+        loader.loadFromTextFile(wordList.toString());
+
+        // Then
+        try (FileChannel channel = FileChannel.open(wordList)) {
+            List<long[]> ranges = TextDictionaryReader.split(channel);
+            assertTrue(ranges.size() > 1);
+            for (long[] range : ranges) {
+                assertTrue(range[1] == channel.size() || text.charAt((int) range[1] - 1) == '\n');
+            }
+        }
+        assertEquals(words, loader.getDictionaryForSize(7).size());
+        assertTrue(loader.getDictionaryForSize(7).contains("zzzpxyz"));
+        assertEquals(Set.of("upper"), loader.getDictionaryForSize(5));
+        assertEquals(words + 1, loader.snapshot().getLoadStatistics().lines());
+    }
+
+    @Test
+    @DisplayName("Given a text word list, when loading it, then pack every length into a sorted byte bucket")
+    void givenTextWordList_whenLoadFromTextFile_thenPackEveryLengthIntoSortedBucket(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path wordList = Files.writeString(tempDir.resolve("words.txt"), "once\nmoan\nnaïf\nneed\nacme\nмир\n", StandardCharsets.UTF_8);
+
+        // When
+        loader.loadFromTextFile(wordList.toString());
+
+        // Then
+        Set<String> fourLetterWords = loader.getDictionaryForSize(4);
+        assertInstanceOf(WordBucket.class, fourLetterWords);
+        assertEquals(List.of("acme", "moan", "naïf", "need", "once"), List.copyOf(fourLetterWords));
+        assertTrue(fourLetterWords.contains("naïf"));
+        assertFalse(fourLetterWords.contains("nail"));
+        assertEquals(Set.of("мир"), loader.getDictionaryForSize(3));
+        assertEquals(List.of("acme", "moan", "naïf", "need", "once"), loader.getPrefixIndexForSize(4).wordsWithPrefix(""));
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonTest {
+
+    @Test
+    @DisplayName("Given text with quotes and control characters, when quoting, then escape them")
+    void givenSpecialCharacters_whenQuoting_thenEscapeThem() {
+        // When & Then
+        assertEquals("\"a\\\"b\\\\c\\u000a\"", Json.quote("a\"b\\c\n"));
+    }
+
+    @Test
+    @DisplayName("Given words, when writing an array, then quote each word")
+    void givenWords_whenWritingArray_thenQuoteEachWord() {
+        // When & Then
+        assertEquals("[\"moan\",\"once\"]", Json.array(List.of("moan", "once")));
+        assertEquals("[]", Json.array(List.of()));
+    }
+}
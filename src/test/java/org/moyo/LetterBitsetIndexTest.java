@@ -0,0 +1,76 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LetterBitsetIndexTest {
+
+    @Test
+    @DisplayName("Given indexed words, when filtering by available letters, then only formable words are set")
+    void givenIndexedWords_whenFilteringByLetters_thenOnlyFormableWordsAreSet() {
+        // Given
+        PrefixIndex index = new PrefixIndex(4, Set.of("moon", "mono", "noon", "omen", "need"));
+        LetterBitsetIndex letterIndex = new LetterBitsetIndex(index);
+
+        // When
+        long[] formable = letterIndex.filter(LetterCounts.of("mnooe"));
+
+        // Then
+        assertEquals(List.of("mono", "moon", "omen"), words(index, formable));
+        assertEquals(3, LetterBitsetIndex.cardinality(formable));
+    }
+
+    @Test
+    @DisplayName("Given more words than one bitset word holds, when filtering, then the result matches counting letters")
+    void givenManyWords_whenFiltering_thenResultMatchesCountingLetters() {
+        // Given
+        Set<String> dictionary = IntStream.range(0, 300)
+                .mapToObj(i -> "" + (char) ('a' + i % 26) + (char) ('a' + i / 26 % 26) + (char) ('a' + i * 7 % 26))
+                .collect(Collectors.toSet());
+        PrefixIndex index = new PrefixIndex(3, dictionary);
+        LetterCounts letters = LetterCounts.of("aabcdeeklmost");
+
+        // When
+        List<String> formable = words(index, new LetterBitsetIndex(index).filter(letters));
+
+        // Then
+        List<String> expected = index.wordsWithPrefix("").stream().filter(letters::contains).collect(Collectors.toList());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, formable);
+    }
+
+    @Test
+    @DisplayName("Given a filtered bitset, when masking the prefix index with it, then only the formable words count below each prefix")
+    void givenFilteredBitset_whenMaskingPrefixIndex_thenOnlyFormableWordsCount() {
+        // Given
+        PrefixIndex index = new PrefixIndex(3, Set.of("tar", "tea", "art", "ten", "rat"));
+        long[] formable = new LetterBitsetIndex(index).filter(LetterCounts.of("rat"));
+
+        // When
+        CandidateMask mask = new CandidateMask(formable);
+
+        // Then
+        assertEquals(List.of("art", "rat", "tar"), words(index, formable));
+        assertEquals(3, mask.count(index.rangeStart(PrefixIndex.ROOT), index.rangeEnd(PrefixIndex.ROOT)));
+        int ra = index.find("ra");
+        assertEquals(1, mask.count(index.rangeStart(ra), index.rangeEnd(ra)));
+        int te = index.find("te");
+        assertEquals(0, mask.count(index.rangeStart(te), index.rangeEnd(te)));
+    }
+
+    private static List<String> words(PrefixIndex index, long[] bits) {
+        List<String> words = new ArrayList<>();
+        for (int id = LetterBitsetIndex.nextSetBit(bits, 0); id >= 0; id = LetterBitsetIndex.nextSetBit(bits, id + 1)) {
+            words.add(index.word(id));
+        }
+        return words;
+    }
+}
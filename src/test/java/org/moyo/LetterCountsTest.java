@@ -0,0 +1,54 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LetterCountsTest {
+
+    @Test
+    @DisplayName("Given a letter sequence, when counting letters, then ignore characters outside a-z")
+    void givenLetterSequence_whenCountingLetters_thenIgnoreCharactersOutsideAlphabet() {
+        // When
+        LetterCounts counts = LetterCounts.of("aab c!");
+
+        // Then
+        assertEquals(2, counts.get('a'));
+        assertEquals(1, counts.get('b'));
+        assertEquals(1, counts.get('c'));
+        assertEquals(0, counts.get('!'));
+        assertEquals(4, counts.total());
+    }
+
+    @Test
+    @DisplayName("Given a failed containment check, when checking a word, then leave counts unchanged")
+    void givenFailedContainmentCheck_whenCheckingWord_thenLeaveCountsUnchanged() {
+        // Given
+        LetterCounts counts = LetterCounts.of("tes");
+
+        // When & Then
+        assertFalse(counts.contains("test"));
+        assertFalse(counts.contains("tEs"));
+        assertTrue(counts.contains("set"));
+        assertEquals(Map.of('e', 1, 's', 1, 't', 1), counts.toMap());
+    }
+
+    @Test
+    @DisplayName("Given letter counts, when copying, then the copy is independent")
+    void givenLetterCounts_whenCopying_thenCopyIsIndependent() {
+        // Given
+        LetterCounts counts = LetterCounts.fromMap(Map.of('x', 2));
+
+        // When
+        LetterCounts copy = counts.copy();
+        copy.subtract("x");
+
+        // Then
+        assertEquals(2, counts.get('x'));
+        assertEquals(1, copy.get('x'));
+        assertFalse(copy.isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    @Test
+    @DisplayName("Given words of mixed lengths, when building index, then only words of the requested length are kept")
+    void givenWordsOfMixedLengths_whenBuildingIndex_thenOnlyRequestedLengthIsKept() {
+        // When
+        PrefixIndex index = new PrefixIndex(3, Set.of("cat", "tea", "tree", "at", "Dog"));
+
+        // Then
+        assertEquals(2, index.size());
+        assertEquals("cat", index.word(0));
+        assertEquals("tea", index.word(1));
+    }
+
+    @Test
+    @DisplayName("Given indexed words, when looking up a prefix, then return matching words in sorted order")
+    void givenIndexedWords_whenLookingUpPrefix_thenReturnMatchingWordsSorted() {
+        // Given
+        PrefixIndex index = new PrefixIndex(3, Set.of("tar", "tea", "art", "ten", "rat"));
+
+        // When
+        List<String> words = index.wordsWithPrefix("te");
+
+        // Then
+        assertEquals(List.of("tea", "ten"), words);
+        assertEquals(List.of("art", "rat", "tar", "tea", "ten"), index.wordsWithPrefix(""));
+        assertEquals(List.of(), index.wordsWithPrefix("x"));
+    }
+
+    @Test
+    @DisplayName("Given indexed words, when checking prefixes, then only reachable prefixes are completable")
+    void givenIndexedWords_whenCheckingPrefixes_thenOnlyReachablePrefixesAreCompletable() {
+        // Given
+        PrefixIndex index = new PrefixIndex(4, Set.of("moan", "once", "acme", "need"));
+
+        // Then
+        assertTrue(index.hasPrefix(""));
+        assertTrue(index.hasPrefix("mo"));
+        assertTrue(index.hasPrefix("need"));
+        assertFalse(index.hasPrefix("mx"));
+        assertFalse(index.hasPrefix("nee!"));
+    }
+
+    @Test
+    @DisplayName("Given a trie node, when following children, then ranges cover the words below it")
+    void givenTrieNode_whenFollowingChildren_thenRangesCoverWordsBelow() {
+        // Given
+        PrefixIndex index = new PrefixIndex(2, Set.of("an", "at", "be"));
+
+        // When
+        int node = index.child(PrefixIndex.ROOT, 'a');
+
+        // Then
+        assertEquals(0, index.rangeStart(node));
+        assertEquals(2, index.rangeEnd(node));
+        assertEquals(PrefixIndex.NO_NODE, index.child(node, 'z'));
+        assertEquals(PrefixIndex.NO_NODE, index.child(PrefixIndex.NO_NODE, 'a'));
+    }
+
+    @Test
+    @DisplayName("Given empty word set, when checking prefixes, then nothing is completable")
+    void givenEmptyWordSet_whenCheckingPrefixes_thenNothingIsCompletable() {
+        // When
+        PrefixIndex index = new PrefixIndex(3, Set.of());
+
+        // Then
+        assertEquals(0, index.size());
+        assertFalse(index.hasPrefix(""));
+        assertEquals(List.of(), index.wordsWithPrefix(""));
+    }
+
+    @Test
+    @DisplayName("Given word matches prefix, when looking up prefix, then the word is returned")
+    void givenWordMatchesPrefix_whenLookingUpPrefix_thenWordIsReturned() {
+        // Given
+        PrefixIndex index = new PrefixIndex(5, Set.of("hello", "world"));
+
+        // When & Then
+        assertEquals(List.of("hello"), index.wordsWithPrefix("hel"));
+        assertEquals(List.of(), index.wordsWithPrefix("hex"));
+        assertEquals(List.of("hello", "world"), index.wordsWithPrefix(""));
+    }
+}
@@ -0,0 +1,107 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RectangleSearchTest {
+
+    @Test
+    @DisplayName("Given row and column buckets of different lengths, when searching, then rows and columns read as words")
+    void givenDifferentLengthBuckets_whenSearching_thenRowsAndColumnsReadAsWords() {
+        // Given
+        PrefixIndex rowIndex = new PrefixIndex(3, Set.of("ant", "toe", "tan"));
+        PrefixIndex columnIndex = new PrefixIndex(2, Set.of("at", "no", "te", "ta"));
+        RectangleSearch search = new RectangleSearch(rowIndex, null, columnIndex, null, LetterCounts.of("antoet"));
+
+        // When
+        assertTrue(search.next());
+
+        // Then
+        assertEquals(List.of("ant", "toe"), search.rows());
+        assertEquals(List.of("at", "no", "te"), search.columns());
+    }
+
+    @Test
+    @DisplayName("Given a symmetric square, when searching for a double square, then reject it because columns repeat rows")
+    void givenSymmetricSquare_whenSearchingDoubleSquare_thenRejectRepeatedWords() {
+        // Given
+        PrefixIndex symmetric = new PrefixIndex(2, Set.of("to", "on"));
+        PrefixIndex distinct = new PrefixIndex(2, Set.of("ab", "cd", "ac", "bd"));
+
+        // When
+        RectangleSearch symmetricSearch = new RectangleSearch(symmetric, null, symmetric, null, LetterCounts.of("toon"));
+        RectangleSearch distinctSearch = new RectangleSearch(distinct, null, distinct, null, LetterCounts.of("abcd"));
+
+        // Then
+        assertFalse(symmetricSearch.next());
+        assertTrue(distinctSearch.next());
+        assertEquals(List.of("ab", "cd"), distinctSearch.rows());
+        assertEquals(List.of("ac", "bd"), distinctSearch.columns());
+        assertTrue(distinctSearch.next());
+        assertEquals(List.of("ac", "bd"), distinctSearch.rows());
+        assertFalse(distinctSearch.next());
+    }
+
+    @Test
+    @DisplayName("Given too few letters or a masked word, when searching, then find no rectangle")
+    void givenTooFewLettersOrMaskedWord_whenSearching_thenFindNoRectangle() {
+        // Given
+        PrefixIndex rowIndex = new PrefixIndex(3, Set.of("ant", "toe"));
+        PrefixIndex columnIndex = new PrefixIndex(2, Set.of("at", "no", "te"));
+        // Word ids follow sorted order, so bit 0 keeps "ant" and drops "toe"
+        long[] withoutToe = {1L};
+
+        // When
+        RectangleSearch shortOfLetters = new RectangleSearch(rowIndex, null, columnIndex, null, LetterCounts.of("antota"));
+        RectangleSearch masked = new RectangleSearch(rowIndex, new CandidateMask(withoutToe), columnIndex, null, LetterCounts.of("antoet"));
+
+        // Then
+        assertFalse(shortOfLetters.next());
+        assertFalse(masked.next());
+    }
+
+    @Test
+    @DisplayName("Given a dictionary, when solving a rectangle through the solver, then return the rows with metrics")
+    void givenDictionary_whenSolveRectangle_thenReturnRowsWithMetrics() {
+        // Given
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        WordSquareSolver solver = new WordSquareSolver(loader);
+
+        // When
+        SolveResult rectangle = solver.solveDoubleSquare(4, "aaccdeeeemmnnnoo");
+        SolveResult tooFewLetters = solver.solveRectangle(3, 4, "abc");
+
+        // Then: the only 4x4 square from these letters is symmetric, so there is no double square
+        assertEquals(SolveStatus.NO_SOLUTION, rectangle.status());
+        assertTrue(rectangle.metrics().getCandidateWords() > 0);
+        assertNotNull(tooFewLetters.metrics().getInfeasibleReason());
+    }
+
+    @Test
+    @DisplayName("Given a spent time budget or a cancelled token, when solving a rectangle, then report which limit stopped it")
+    void givenSpentBudgetOrCancelledToken_whenSolveRectangle_thenReportTimedOutOrCancelled() {
+        // Given
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        WordSquareSolver solver = new WordSquareSolver(loader);
+        CancellationToken cancelled = new CancellationToken();
+        cancelled.cancel();
+
+        // When
+        SolveResult timedOut = solver.solveRectangle(4, 4, "aaccdeeeemmnnnoo", Duration.ZERO, CancellationToken.NONE);
+        SolveResult stopped = solver.solveRectangle(4, 4, "aaccdeeeemmnnnoo", null, cancelled);
+
+        // Then
+        assertEquals(SolveStatus.TIMED_OUT, timedOut.status());
+        assertEquals(SolveStatus.CANCELLED, stopped.status());
+        assertEquals(1, solver.getStatistics().getTimedOutCount());
+        assertEquals(1, solver.getStatistics().getCancelledCount());
+    }
+}
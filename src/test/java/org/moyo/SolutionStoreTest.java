@@ -0,0 +1,215 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionStoreTest {
+
+    private static final long DICTIONARY = 42;
+    private static final long OTHER_DICTIONARY = 43;
+
+    @Test
+    @DisplayName("Given stored puzzles, when getting an anagram, then return its square and miss other dictionaries")
+    void givenStoredPuzzles_whenGettingAnagram_thenReturnSquare(@TempDir Path tempDir) throws IOException {
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            // Given
+            assertTrue(store.put(DICTIONARY, 2, LetterCounts.of("abbc"), List.of("ab", "bc")));
+            assertTrue(store.put(DICTIONARY, 2, LetterCounts.of("zzzz"), List.of()));
+
+            // When
+            Optional<List<String>> square = store.get(DICTIONARY, 2, LetterCounts.of("cbba"));
+
+            // Then
+            assertEquals(Optional.of(List.of("ab", "bc")), square);
+            assertEquals(Optional.of(List.of()), store.get(DICTIONARY, 2, LetterCounts.of("zzzz")));
+            assertEquals(Optional.empty(), store.get(OTHER_DICTIONARY, 2, LetterCounts.of("abbc")));
+            assertEquals(Optional.empty(), store.get(DICTIONARY, 3, LetterCounts.of("abbc")));
+            assertFalse(store.put(DICTIONARY, 2, LetterCounts.of("abbc"), List.of("ba", "ab")));
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Given a closed store, when reopening it, then keep every puzzle per dictionary")
+    void givenClosedStore_whenReopening_thenKeepEveryPuzzle(@TempDir Path tempDir) throws IOException {
+        // Given
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            store.put(DICTIONARY, 2, LetterCounts.of("abbc"), List.of("ab", "bc"));
+            store.put(OTHER_DICTIONARY, 2, LetterCounts.of("aabb"), List.of("ab", "ba"));
+        }
+
+        // When
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            // Then
+            assertEquals(2, store.size());
+            assertEquals(1, store.entriesFor(DICTIONARY));
+            assertEquals(0, store.entriesFor(7));
+            assertEquals(Optional.of(List.of("ab", "ba")), store.get(OTHER_DICTIONARY, 2, LetterCounts.of("abab")));
+        }
+    }
+
+    @Test
+    @DisplayName("Given a store without its index, when reopening it, then rebuild the index from the records")
+    void givenMissingIndex_whenReopening_thenRebuildIndex(@TempDir Path tempDir) throws IOException {
+        // Given
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            store.put(DICTIONARY, 2, LetterCounts.of("abbc"), List.of("ab", "bc"));
+            store.put(DICTIONARY, 2, LetterCounts.of("aabb"), List.of("ab", "ba"));
+        }
+        Files.delete(tempDir.resolve(SolutionStore.INDEX_FILE));
+
+        // When
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            // Then
+            assertEquals(2, store.entriesFor(DICTIONARY));
+            assertEquals(Optional.of(List.of("ab", "bc")), store.get(DICTIONARY, 2, LetterCounts.of("abbc")));
+        }
+        assertEquals(2 * 24, Files.size(tempDir.resolve(SolutionStore.INDEX_FILE)));
+    }
+
+    @Test
+    @DisplayName("Given a partly written last record, when reopening, then drop it and keep appending")
+    void givenTornLastRecord_whenReopening_thenDropItAndKeepAppending(@TempDir Path tempDir) throws IOException {
+        // Given
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            store.put(DICTIONARY, 2, LetterCounts.of("abbc"), List.of("ab", "bc"));
+        }
+        Path data = tempDir.resolve(SolutionStore.DATA_FILE);
+        long intactSize = Files.size(data);
+        Files.write(data, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        // When
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            assertEquals(intactSize, Files.size(data));
+            store.put(DICTIONARY, 2, LetterCounts.of("aabb"), List.of("ab", "ba"));
+        }
+
+        // Then
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            assertEquals(2, store.size());
+            assertEquals(Optional.of(List.of("ab", "ba")), store.get(DICTIONARY, 2, LetterCounts.of("aabb")));
+        }
+    }
+
+    @Test
+    @DisplayName("Given a file that is not a store, when opening it, then throw IOException")
+    void givenForeignFile_whenOpening_thenThrowIOException(@TempDir Path tempDir) throws IOException {
+        // Given
+        Files.writeString(tempDir.resolve(SolutionStore.DATA_FILE), "not a store", StandardCharsets.UTF_8);
+
+        // When / Then
+        assertThrows(IOException.class, () -> SolutionStore.open(tempDir));
+    }
+
+    @Test
+    @DisplayName("Given a small dictionary, when precomputing, then store the square a sorted solve finds for every multiset")
+    void givenSmallDictionary_whenPrecomputing_thenStoreFirstSquarePerMultiset(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path wordList = Files.writeString(tempDir.resolve("words.txt"), "ab\nbc\ncb\nba\n", StandardCharsets.UTF_8);
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile(wordList.toString());
+        DictionarySnapshot snapshot = loader.snapshot();
+
+        try (SolutionStore store = SolutionStore.open(tempDir.resolve("store"))) {
+            // When
+            SolutionPrecompute.Summary summary = new SolutionPrecompute(snapshot, store).run(2, new CancellationToken());
+
+            // Then
+            assertTrue(summary.completed());
+            assertEquals(3, summary.stored());
+            assertTrue(summary.squares() >= summary.stored());
+            assertEquals(3, store.entriesFor(snapshot.getContentHash()));
+            WordSquareSolver solver = new WordSquareSolver(loader);
+            for (String letters : List.of("abbc", "aabb", "bbcc")) {
+                assertEquals(Optional.of(solver.solve(2, letters).square()),
+                        store.get(snapshot.getContentHash(), 2, LetterCounts.of(letters)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Given a limit on the squares, when precomputing again after reopening, then resume where the last run stopped")
+    void givenSquareLimit_whenPrecomputingAgain_thenResumeWhereLastRunStopped(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path wordList = Files.writeString(tempDir.resolve("words.txt"), "ab\nbc\ncb\nba\n", StandardCharsets.UTF_8);
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile(wordList.toString());
+        DictionarySnapshot snapshot = loader.snapshot();
+        long allSquares;
+        try (SolutionStore store = SolutionStore.open(tempDir.resolve("full"))) {
+            allSquares = new SolutionPrecompute(snapshot, store).run(2, new CancellationToken()).squares();
+        }
+
+        // When
+        SolutionPrecompute.Summary first;
+        SolutionPrecompute.Summary second;
+        try (SolutionStore store = SolutionStore.open(tempDir.resolve("store"))) {
+            first = new SolutionPrecompute(snapshot, store).run(2, 2, new CancellationToken());
+        }
+        try (SolutionStore store = SolutionStore.open(tempDir.resolve("store"))) {
+            second = new SolutionPrecompute(snapshot, store).run(2, 2, new CancellationToken());
+        }
+
+        // Then
+        assertEquals(6, allSquares);
+        assertEquals(2, first.squares());
+        assertFalse(first.completed());
+        assertEquals(2, second.squares());
+        assertTrue(second.stored() > 0);
+        assertFalse(second.completed());
+        try (SolutionStore store = SolutionStore.open(tempDir.resolve("store"))) {
+            SolutionPrecompute.Summary last = new SolutionPrecompute(snapshot, store).run(2, 2, new CancellationToken());
+            assertEquals(2, last.squares());
+            assertTrue(last.completed());
+            assertEquals(3, store.entriesFor(snapshot.getContentHash()));
+        }
+    }
+
+    @Test
+    @DisplayName("Given a limit equal to the number of squares, when precomputing, then report the run completed")
+    void givenLimitEqualToSquareCount_whenPrecomputing_thenReportCompleted(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path wordList = Files.writeString(tempDir.resolve("words.txt"), "ab\nbc\ncb\nba\n", StandardCharsets.UTF_8);
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile(wordList.toString());
+
+        try (SolutionStore store = SolutionStore.open(tempDir.resolve("store"))) {
+            // When
+            SolutionPrecompute.Summary summary = new SolutionPrecompute(loader.snapshot(), store).run(2, 6, new CancellationToken());
+
+            // Then
+            assertEquals(6, summary.squares());
+            assertTrue(summary.completed());
+        }
+    }
+
+    @Test
+    @DisplayName("Given a cancelled token, when precomputing, then stop without completing")
+    void givenCancelledToken_whenPrecomputing_thenStopWithoutCompleting(@TempDir Path tempDir) throws IOException {
+        // Given
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            // When
+            SolutionPrecompute.Summary summary = new SolutionPrecompute(loader.snapshot(), store).run(4, token);
+
+            // Then
+            assertFalse(summary.completed());
+            assertTrue(summary.squares() <= 1);
+        }
+    }
+}
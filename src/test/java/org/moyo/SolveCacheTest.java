@@ -0,0 +1,67 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolveCacheTest {
+
+    @Test
+    @DisplayName("Given anagram sequences, when building keys, then the keys are equal")
+    void givenAnagramSequences_whenBuildingKeys_thenKeysAreEqual() {
+        // When
+        SolveCache.Key first = SolveCache.key(1, 4, LetterCounts.of("need"), SearchStrategy.ROWS);
+        SolveCache.Key second = SolveCache.key(1, 4, LetterCounts.of("dene"), SearchStrategy.ROWS);
+
+        // Then
+        assertEquals(first, second);
+        assertEquals("deen", first.letters());
+        assertNotEquals(first, SolveCache.key(2, 4, LetterCounts.of("need"), SearchStrategy.ROWS));
+        assertNotEquals(first, SolveCache.key(1, 4, LetterCounts.of("need"), SearchStrategy.MOST_CONSTRAINED));
+    }
+
+    @Test
+    @DisplayName("Given a full cache, when adding an entry, then the least recently used entry is evicted")
+    void givenFullCache_whenAddingEntry_thenLeastRecentlyUsedIsEvicted() {
+        // Given
+        SolveCache cache = new SolveCache(2);
+        SolveCache.Key a = SolveCache.key(1, 2, LetterCounts.of("aa"), SearchStrategy.ROWS);
+        SolveCache.Key b = SolveCache.key(1, 2, LetterCounts.of("bb"), SearchStrategy.ROWS);
+        SolveCache.Key c = SolveCache.key(1, 2, LetterCounts.of("cc"), SearchStrategy.ROWS);
+        cache.put(a, List.of("a"));
+        cache.put(b, List.of("b"));
+        cache.get(a);
+
+        // When
+        cache.put(c, List.of());
+
+        // Then
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(Optional.of(List.of("a")), cache.get(a));
+        assertEquals(Optional.empty(), cache.get(b));
+        assertEquals(Optional.of(List.of()), cache.get(c));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Given cached entries, when invalidating, then the cache is empty")
+    void givenCachedEntries_whenInvalidating_thenCacheIsEmpty() {
+        // Given
+        SolveCache cache = new SolveCache(2);
+        SolveCache.Key key = SolveCache.key(1, 2, LetterCounts.of("aa"), SearchStrategy.ROWS);
+        cache.put(key, List.of("aa"));
+
+        // When
+        cache.invalidate();
+
+        // Then
+        assertEquals(0, cache.size());
+        assertEquals(Optional.empty(), cache.get(key));
+    }
+}
@@ -0,0 +1,158 @@
+package org.moyo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolveServerTest {
+
+    static SolveServer server;
+    static HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        server = new SolveServer(new WordSquareSolver(loader), new InetSocketAddress("localhost", 0), Duration.ofSeconds(5), 4);
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Given a solvable puzzle, when requesting a solve, then return the square as JSON")
+    void givenSolvablePuzzle_whenRequestingSolve_thenReturnSquareAsJson() throws Exception {
+        // When
+        HttpResponse<String> response = get("/solve?size=4&sequence=aaccdeeeemmnnnoo");
+
+        // Then
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"solved\":true,\"square\":[\"moan\",\"once\",\"acme\",\"need\"]"));
+    }
+
+    @Test
+    @DisplayName("Given a limit, when requesting an enumeration, then return up to that many squares")
+    void givenLimit_whenRequestingEnumeration_thenReturnUpToLimitSquares() throws Exception {
+        // When
+        HttpResponse<String> response = get("/enumerate?size=4&sequence=aaccdeeeemmnnnoo&max=1");
+
+        // Then
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().endsWith("\"squares\":[[\"moan\",\"once\",\"acme\",\"need\"]]}"));
+    }
+
+    @Test
+    @DisplayName("Given invalid parameters, when requesting a solve, then return 400 with the error")
+    void givenInvalidParameters_whenRequestingSolve_thenReturnBadRequest() throws Exception {
+        // When
+        HttpResponse<String> missing = get("/solve?size=4");
+        HttpResponse<String> invalid = get("/solve?size=four&sequence=abc");
+
+        // Then
+        assertEquals(400, missing.statusCode());
+        assertEquals("{\"error\":\"Missing parameter: sequence\"}", missing.body());
+        assertEquals(400, invalid.statusCode());
+    }
+
+    @Test
+    @DisplayName("Given a spent time budget, when requesting a solve or an enumeration, then return 504")
+    void givenSpentTimeBudget_whenRequestingSolveOrEnumeration_thenReturnGatewayTimeout() throws Exception {
+        // Given
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        SolveServer timingOut = new SolveServer(new WordSquareSolver(loader), new InetSocketAddress("localhost", 0), Duration.ZERO, 4);
+        timingOut.start();
+
+        try {
+            // When
+            HttpResponse<String> solve = get(timingOut, "/solve?size=4&sequence=aaccdeeeemmnnnoo");
+            HttpResponse<String> enumerate = get(timingOut, "/enumerate?size=4&sequence=aaccdeeeemmnnnoo&max=2");
+
+            // Then
+            assertEquals(504, solve.statusCode());
+            assertEquals(504, enumerate.statusCode());
+            assertTrue(solve.body().contains("did not finish"));
+        } finally {
+            timingOut.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Given every solve permit taken, when requesting another solve, then return 503 with Retry-After")
+    void givenEveryPermitTaken_whenRequestingSolve_thenReturnServiceUnavailable() throws Exception {
+        // Given: a single permit, held by a solve that blocks in its search until released
+        DictionaryLoader loader = new DictionaryLoader();
+        loader.loadFromTextFile("src/test/resources/TestWord.txt");
+        WordSquareSolver blockingSolver = new WordSquareSolver(loader);
+        CountDownLatch searching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockingSolver.setSearchListener(new SearchListener() {
+            @Override
+            public void onNodeVisited(int depth) {
+                searching.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        SolveServer busy = new SolveServer(blockingSolver, new InetSocketAddress("localhost", 0), Duration.ofSeconds(5), 1);
+        busy.start();
+
+        try {
+            CompletableFuture<HttpResponse<String>> first = client.sendAsync(request(busy, "/solve?size=4&sequence=aaccdeeeemmnnnoo"),
+                    HttpResponse.BodyHandlers.ofString());
+            assertTrue(searching.await(5, TimeUnit.SECONDS));
+
+            // When
+            HttpResponse<String> rejected = get(busy, "/solve?size=4&sequence=aaccdeeeemmnnnoo");
+            release.countDown();
+
+            // Then
+            assertEquals(503, rejected.statusCode());
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).statusCode());
+        } finally {
+            release.countDown();
+            busy.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Given an encoded query, when parsing it, then decode names and values")
+    void givenEncodedQuery_whenParsing_thenDecodeNamesAndValues() {
+        // When & Then
+        assertEquals(Map.of("size", "4", "sequence", "a b"), SolveServer.parseQuery("size=4&sequence=a%20b"));
+    }
+
+    private static HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return get(server, path);
+    }
+
+    private static HttpResponse<String> get(SolveServer target, String path) throws IOException, InterruptedException {
+        return client.send(request(target, path), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest request(SolveServer target, String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + target.getPort() + path)).build();
+    }
+}
@@ -0,0 +1,61 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverStatisticsTest {
+
+    @Test
+    @DisplayName("Given recorded solves, when reading statistics, then report totals and the last solve")
+    void givenRecordedSolves_whenReadingStatistics_thenReportTotalsAndLastSolve() {
+        // Given
+        SolverStatistics statistics = new SolverStatistics();
+        SolverMetrics metrics = new SolverMetrics(2);
+        metrics.addSearchCounts(new long[]{3, 1}, new long[]{0, 2, 5});
+        metrics.setCandidateWords(7);
+
+        // When
+        statistics.record(new SolveResult(List.of("to", "on"), metrics));
+        statistics.record(new SolveResult(List.of(), new SolverMetrics(2)));
+
+        // Then
+        assertEquals(2, statistics.getSolveCount());
+        assertEquals(1, statistics.getSolvedCount());
+        assertEquals(4, statistics.getTotalNodesExpanded());
+        assertEquals(0, statistics.getLastNodesExpanded());
+        assertEquals(0L, statistics.getLastPruneCounts().get("COLUMN"));
+
+        statistics.reset();
+        assertEquals(0, statistics.getSolveCount());
+        assertArrayEquals(new long[0], statistics.getLastNodesExpandedPerDepth());
+    }
+
+    @Test
+    @DisplayName("Given statistics registered as an MBean, when reading attributes over JMX, then expose the counters")
+    void givenRegisteredMBean_whenReadingAttributes_thenExposeCounters() throws Exception {
+        // Given
+        SolverStatistics statistics = new SolverStatistics();
+        SolverMetrics metrics = new SolverMetrics(1);
+        metrics.addSearchCounts(new long[]{2}, new long[]{0, 0, 1});
+        statistics.record(new SolveResult(List.of("a"), metrics));
+
+        // When
+        statistics.registerMBean();
+        statistics.registerMBean();
+
+        // Then
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(SolverStatistics.OBJECT_NAME);
+        assertEquals(1L, server.getAttribute(name, "SolveCount"));
+        assertEquals(2L, server.getAttribute(name, "LastNodesExpanded"));
+        assertNotNull(server.getAttribute(name, "LastPruneCounts"));
+        server.unregisterMBean(name);
+    }
+}
@@ -0,0 +1,52 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SquareFeasibilityTest {
+
+    @Test
+    @DisplayName("Given letters that exactly fill the grid, when checking, then the odd letters are required on the diagonal")
+    void givenExactLetters_whenChecking_thenOddLettersAreRequiredOnDiagonal() {
+        // When
+        SquareFeasibility feasibility = SquareFeasibility.check(4, LetterCounts.of("aaccdeeeemmnnnoo"));
+
+        // Then
+        assertTrue(feasibility.isFeasible());
+        assertNull(feasibility.getReason());
+        assertEquals(Map.of('d', 1, 'n', 1), feasibility.getRequiredDiagonal().toMap());
+    }
+
+    @Test
+    @DisplayName("Given more odd letter counts than diagonal cells, when checking, then reject the letters")
+    void givenTooManyOddCounts_whenChecking_thenReject() {
+        // When
+        SquareFeasibility feasibility = SquareFeasibility.check(3, LetterCounts.of("abcdeffgg"));
+
+        // Then
+        assertFalse(feasibility.isFeasible());
+        assertTrue(feasibility.getReason().contains("odd"));
+    }
+
+    @Test
+    @DisplayName("Given too few letters, when checking, then reject the letters")
+    void givenTooFewLetters_whenChecking_thenReject() {
+        // When & Then
+        assertFalse(SquareFeasibility.check(3, LetterCounts.of("aabbccdd")).isFeasible());
+    }
+
+    @Test
+    @DisplayName("Given more letters than cells, when checking, then accept without diagonal constraints")
+    void givenMoreLettersThanCells_whenChecking_thenAcceptWithoutConstraints() {
+        // When
+        SquareFeasibility feasibility = SquareFeasibility.check(2, LetterCounts.of("abcdef"));
+
+        // Then
+        assertTrue(feasibility.isFeasible());
+        assertNull(feasibility.getRequiredDiagonal());
+    }
+}
@@ -0,0 +1,230 @@
+package org.moyo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SquareSearchTest {
+
+    @Test
+    @DisplayName("Given a placed row, when checking column cursors, then they follow the partial columns")
+    void givenPlacedRow_whenCheckingColumnCursors_thenTheyFollowPartialColumns() {
+        // Given
+        PrefixIndex index = new PrefixIndex(3, Set.of("cat", "are", "tea"));
+        SquareSearch search = new SquareSearch(index, 3, LetterCounts.of("aaacceerttt"));
+
+        // When
+        assertTrue(search.place(0, index.rangeStart(index.find("cat"))));
+
+        // Then
+        assertEquals(index.find("a"), search.columnCursor(1, 1));
+        assertEquals(index.find("t"), search.columnCursor(1, 2));
+    }
+
+    @Test
+    @DisplayName("Given a column that cannot complete, when placing a row, then reject the word")
+    void givenColumnThatCannotComplete_whenPlacingRow_thenRejectWord() {
+        // Given
+        PrefixIndex index = new PrefixIndex(2, Set.of("ab", "cd"));
+        SquareSearch search = new SquareSearch(index, 2, LetterCounts.of("aabbccdd"));
+
+        // When & Then: no word starts with 'b', so "ab" cannot be the first row
+        assertFalse(search.place(0, 0));
+    }
+
+    @Test
+    @DisplayName("Given insufficient letters, when placing a row, then reject the word and keep the budget")
+    void givenInsufficientLetters_whenPlacingRow_thenRejectWordAndKeepBudget() {
+        // Given
+        PrefixIndex index = new PrefixIndex(2, Set.of("to", "on"));
+        LetterCounts letters = LetterCounts.of("on");
+        SquareSearch search = new SquareSearch(index, 2, letters);
+
+        // When & Then
+        assertFalse(search.place(0, 1));
+        assertEquals(2, letters.total());
+    }
+
+    @Test
+    @DisplayName("Given several squares, when calling next repeatedly, then enumerate each square once")
+    void givenSeveralSquares_whenCallingNextRepeatedly_thenEnumerateEachSquareOnce() {
+        // Given
+        PrefixIndex index = new PrefixIndex(2, Set.of("ab", "ba", "aa", "bb"));
+        SquareSearch search = new SquareSearch(index, 2, LetterCounts.of("aabb"));
+
+        // When & Then
+        assertTrue(search.next());
+        assertEquals(List.of("ab", "ba"), search.square());
+        assertTrue(search.next());
+        assertEquals(List.of("ba", "ab"), search.square());
+        assertFalse(search.next());
+        assertFalse(search.next());
+    }
+
+    @Test
+    @DisplayName("Given symmetric pair debits, when placing the first row, then letters right of the diagonal are debited twice")
+    void givenSymmetricPairs_whenPlacingFirstRow_thenOffDiagonalLettersAreDebitedTwice() {
+        // Given
+        PrefixIndex index = new PrefixIndex(2, Set.of("to", "on"));
+        LetterCounts letters = LetterCounts.of("toon");
+        SquareSearch search = new SquareSearch(index, 2, letters);
+        search.setStrategy(SearchStrategy.SYMMETRIC_PAIRS);
+
+        // When
+        assertTrue(search.next());
+
+        // Then
+        assertEquals(List.of("to", "on"), search.square());
+        assertEquals(0, letters.total());
+    }
+
+    @Test
+    @DisplayName("Given more odd letter counts than diagonal cells, when searching symmetric pairs, then prune by parity")
+    void givenTooManyOddLetters_whenSearchingSymmetricPairs_thenPruneByParity() {
+        // Given: after "aaa" takes five a's, b, c, d and e are left odd for only two diagonal cells
+        PrefixIndex index = new PrefixIndex(3, Set.of("aaa"));
+        SolverMetrics metrics = new SolverMetrics(3);
+        SquareSearch search = new SquareSearch(index, 3, LetterCounts.of("aaaaabcde"));
+        search.setStrategy(SearchStrategy.SYMMETRIC_PAIRS);
+        search.setMetrics(metrics);
+
+        // When & Then
+        assertFalse(search.next());
+        assertTrue(metrics.getPruneCount(SolverMetrics.Prune.PARITY) > 0);
+    }
+
+    @Test
+    @DisplayName("Given both strategies, when enumerating squares, then they find the same squares in the same order")
+    void givenBothStrategies_whenEnumeratingSquares_thenFindSameSquaresInOrder() {
+        // Given
+        PrefixIndex index = new PrefixIndex(3, Set.of("bit", "ice", "ten", "tie", "eel", "net", "ate", "tea", "eat"));
+        LetterCounts letters = LetterCounts.of("abceeeiilnnttttt");
+
+        // When
+        List<List<String>> rows = enumerate(index, letters, SearchStrategy.ROWS);
+        List<List<String>> pairs = enumerate(index, letters, SearchStrategy.SYMMETRIC_PAIRS);
+
+        // Then
+        assertFalse(rows.isEmpty());
+        assertEquals(rows, pairs);
+    }
+
+    @Test
+    @DisplayName("Given the most-constrained strategy, when enumerating squares, then find the same squares as filling rows in order")
+    void givenMostConstrained_whenEnumeratingSquares_thenFindSameSquaresAsRows() {
+        // Given
+        PrefixIndex index = new PrefixIndex(3, Set.of("bit", "ice", "ten", "tie", "eel", "net", "ate", "tea", "eat", "tan", "ant", "nee"));
+        LetterCounts letters = LetterCounts.of("aabceeeeiilnnnttttt");
+
+        // When
+        List<List<String>> rows = enumerate(index, letters, SearchStrategy.ROWS);
+        List<List<String>> constrained = enumerate(index, letters, SearchStrategy.MOST_CONSTRAINED);
+
+        // Then
+        assertTrue(rows.size() > 1);
+        assertEquals(rows.size(), constrained.size());
+        assertEquals(Set.copyOf(rows), Set.copyOf(constrained));
+    }
+
+    @Test
+    @DisplayName("Given the most-constrained strategy, when an open slot is left without candidates, then reject the word and keep the budget")
+    void givenMostConstrained_whenOpenSlotLeftWithoutCandidates_thenRejectWordAndKeepBudget() {
+        // Given: no word starts with 'b', so "ab" in slot 0 leaves slot 1 without candidates
+        PrefixIndex index = new PrefixIndex(2, Set.of("ab", "ca", "ac"));
+        LetterCounts letters = LetterCounts.of("aabbcc");
+        SquareSearch search = new SquareSearch(index, 2, letters);
+        search.setStrategy(SearchStrategy.MOST_CONSTRAINED);
+        SolverMetrics metrics = new SolverMetrics(2);
+        search.setMetrics(metrics);
+
+        // When
+        List<List<String>> squares = new ArrayList<>();
+        while (search.next()) {
+            squares.add(search.square());
+        }
+
+        // Then
+        assertEquals(Set.of(List.of("ac", "ca"), List.of("ca", "ac"), List.of("ca", "ab")), Set.copyOf(squares));
+        assertTrue(metrics.getPruneCount(SolverMetrics.Prune.COLUMN) > 0);
+        assertEquals(6, letters.total());
+    }
+
+    @Test
+    @DisplayName("Given required diagonal letters, when a row leaves too few diagonal cells for them, then prune it")
+    void givenRequiredDiagonal_whenRowLeavesTooFewDiagonalCells_thenPruneIt() {
+        // Given: both 'c' and 'd' must be on the diagonal, so row 0 has to start with one of them
+        PrefixIndex index = new PrefixIndex(2, Set.of("ab", "ba", "cd", "dc"));
+        SquareSearch search = new SquareSearch(index, 2, LetterCounts.of("abcddcba"));
+        search.setRequiredDiagonal(LetterCounts.of("cd"));
+
+        // When & Then
+        assertFalse(search.place(0, index.rangeStart(index.find("ab"))));
+        assertTrue(search.place(0, index.rangeStart(index.find("cd"))));
+    }
+
+    @Test
+    @DisplayName("Given a candidate mask over a shared index, when searching, then visit the same squares and nodes as an index of the masked words")
+    void givenCandidateMask_whenSearching_thenMatchIndexOfMaskedWords() {
+        // Given
+        PrefixIndex shared = new PrefixIndex(3, Set.of("bit", "ice", "ten", "tie", "eel", "net", "ate", "tea", "eat", "zoo", "ban"));
+        LetterCounts letters = LetterCounts.of("biticeten");
+        CandidateMask mask = new CandidateMask(new LetterBitsetIndex(shared).filter(letters));
+        PrefixIndex copied = new PrefixIndex(3, IntStream.range(0, shared.size()).filter(mask::contains).mapToObj(shared::word).toList());
+
+        SquareSearch masked = new SquareSearch(shared, 3, letters.copy());
+        masked.setCandidateMask(mask);
+        SolverMetrics maskedMetrics = new SolverMetrics(3);
+        masked.setMetrics(maskedMetrics);
+        SquareSearch reference = new SquareSearch(copied, 3, letters.copy());
+        SolverMetrics referenceMetrics = new SolverMetrics(3);
+        reference.setMetrics(referenceMetrics);
+
+        // When
+        List<List<String>> maskedSquares = new java.util.ArrayList<>();
+        masked.iterator().forEachRemaining(maskedSquares::add);
+        List<List<String>> referenceSquares = new java.util.ArrayList<>();
+        reference.iterator().forEachRemaining(referenceSquares::add);
+
+        // Then
+        assertFalse(referenceSquares.isEmpty());
+        assertEquals(referenceSquares, maskedSquares);
+        assertEquals(referenceMetrics.getNodesExpanded(), maskedMetrics.getNodesExpanded());
+    }
+
+    @Test
+    @DisplayName("Given a candidate mask, when counting and scanning id ranges, then only allowed ids are seen")
+    void givenCandidateMask_whenCountingAndScanningRanges_thenOnlyAllowedIdsAreSeen() {
+        // Given: ids 1, 64, 65 and 130 allowed
+        long[] bits = new long[3];
+        for (int id : new int[]{1, 64, 65, 130}) {
+            bits[id >>> 6] |= 1L << id;
+        }
+
+        // When
+        CandidateMask mask = new CandidateMask(bits);
+
+        // Then
+        assertEquals(4, mask.cardinality());
+        assertEquals(3, mask.count(1, 66));
+        assertEquals(0, mask.count(2, 64));
+        assertEquals(64, mask.next(2, 192));
+        assertEquals(100, mask.next(66, 100));
+        assertEquals(130, mask.next(66, 192));
+        assertTrue(mask.contains(65));
+        assertFalse(mask.contains(66));
+    }
+
+    private static List<List<String>> enumerate(PrefixIndex index, LetterCounts letters, SearchStrategy strategy) {
+        SquareSearch search = new SquareSearch(index, index.getWordLength(), letters.copy());
+        search.setStrategy(strategy);
+        List<List<String>> squares = new java.util.ArrayList<>();
+        search.iterator().forEachRemaining(squares::add);
+        return squares;
+    }
+}
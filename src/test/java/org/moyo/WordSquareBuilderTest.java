@@ -5,6 +5,13 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -77,232 +84,274 @@ class WordSquareBuilderTest {
     }
 
     @Test
-    @DisplayName("Given word matches prefix, when checking matchesPrefix, then return true")
-    void givenWordMatchesPrefix_whenCheckingMatchesPrefix_thenReturnTrue() {
+    @DisplayName("Given valid 3x3 word square scenario, when building square, then return correct solution")
+    void givenValid3x3WordSquareScenario_whenBuildingSquare_thenReturnCorrectSolution() {
         // Given
+        validWords = Set.of("cat", "are", "tea", "art", "ear", "rat", "tar");
         builder = new WordSquareBuilder(3, validWords);
-        String word = "hello";
-        String prefix = "hel";
+        Map<Character, Integer> letters = new HashMap<>();
+        letters.put('c', 2);
+        letters.put('a', 3);
+        letters.put('t', 2);
+        letters.put('r', 2);
+        letters.put('e', 3);
 
         // When
-        boolean result = builder.matchesPrefix(word, prefix);
+        Optional<List<String>> result = builder.build(letters);
 
         // Then
-        assertTrue(result);
+        assertTrue(result.isPresent());
+        List<String> square = result.get();
+        assertEquals(3, square.size());
+
+        // Verify word square property
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(square.get(i).charAt(j), square.get(j).charAt(i),
+                        String.format("Position [%d][%d] should match [%d][%d]", i, j, j, i));
+            }
+        }
     }
 
     @Test
-    @DisplayName("Given word does not match prefix, when checking matchesPrefix, then return false")
-    void givenWordDoesNotMatchPrefix_whenCheckingMatchesPrefix_thenReturnFalse() {
+    @DisplayName("Given multiple possible solutions, when building square, then return first valid solution")
+    void givenMultiplePossibleSolutions_whenBuildingSquare_thenReturnFirstValidSolution() {
         // Given
-        builder = new WordSquareBuilder(3, validWords);
-        String word = "hello";
-        String prefix = "hex";
+        validWords = Set.of("ab", "ba", "aa", "bb");
+        builder = new WordSquareBuilder(2, validWords);
+        Map<Character, Integer> letters = Map.of('a', 2, 'b', 2);
 
         // When
-        boolean result = builder.matchesPrefix(word, prefix);
+        Optional<List<String>> result = builder.build(letters);
 
         // Then
-        assertFalse(result);
+        assertTrue(result.isPresent());
+        List<String> square = result.get();
+        assertEquals(2, square.size());
+
+        // Verify it's a valid word square
+        assertEquals(square.get(0).charAt(0), square.get(0).charAt(0));
+        assertEquals(square.get(0).charAt(1), square.get(1).charAt(0));
+        assertEquals(square.get(1).charAt(0), square.get(0).charAt(1));
+        assertEquals(square.get(1).charAt(1), square.get(1).charAt(1));
     }
 
     @Test
-    @DisplayName("Given empty prefix, when checking matchesPrefix, then return true")
-    void givenEmptyPrefix_whenCheckingMatchesPrefix_thenReturnTrue() {
+    @DisplayName("Given no solution exists, when building square, then return empty optional")
+    void givenNoSolutionExists_whenBuildingSquare_thenReturnEmptyOptional() {
         // Given
-        builder = new WordSquareBuilder(3, validWords);
-        String word = "hello";
-        String prefix = "";
+        validWords = Set.of("abc", "def", "ghi"); // No possible word square
+        builder = new WordSquareBuilder(2, validWords);
+        Map<Character, Integer> letters = Map.of('x', 4, 'y', 4, 'z', 4);
 
         // When
-        boolean result = builder.matchesPrefix(word, prefix);
+        Optional<List<String>> result = builder.build(letters);
 
         // Then
-        assertTrue(result);
+        assertFalse(result.isPresent());
     }
 
     @Test
-    @DisplayName("Given word can be formed from available letters, when checking hasEnoughLetters, then return true")
-    void givenWordCanBeFormedFromAvailableLetters_whenCheckingHasEnoughLetters_thenReturnTrue() {
+    @DisplayName("Given multiple possible solutions, when building in parallel, then return the sequential solution")
+    void givenMultiplePossibleSolutions_whenBuildingInParallel_thenReturnSequentialSolution() {
         // Given
-        builder = new WordSquareBuilder(3, validWords);
-        String word = "test";
-        Map<Character, Integer> availableLetters = Map.of(
-                't', 2,
-                'e', 1,
-                's', 1
-        );
+        validWords = Set.of("ab", "ba", "aa", "bb", "cat", "are", "tea");
+        builder = new WordSquareBuilder(2, validWords);
+        LetterCounts letters = LetterCounts.of("aabb");
+        ForkJoinPool pool = new ForkJoinPool(4);
 
         // When
-        boolean result = builder.hasEnoughLetters(word, availableLetters);
+        Optional<List<String>> sequential = builder.build(letters);
+        Optional<List<String>> parallel = builder.buildParallel(letters, pool);
+        pool.shutdown();
 
         // Then
-        assertTrue(result);
+        assertEquals(Optional.of(List.of("ab", "ba")), sequential);
+        assertEquals(sequential, parallel);
     }
 
     @Test
-    @DisplayName("Given word cannot be formed due to missing letters, when checking hasEnoughLetters, then return false")
-    void givenWordCannotBeFormedDueToMissingLetters_whenCheckingHasEnoughLetters_thenReturnFalse() {
+    @DisplayName("Given an interrupted caller, when building in parallel, then stop every subtree")
+    void givenInterruptedCaller_whenBuildingInParallel_thenStopEverySubtree() {
         // Given
-        builder = new WordSquareBuilder(3, validWords);
-        String word = "test";
-        Map<Character, Integer> availableLetters = Map.of(
-                't', 1,  // Need 2 t's but only have 1
-                'e', 1,
-                's', 1
-        );
+        builder = new WordSquareBuilder(2, Set.of("ab", "ba", "aa", "bb"));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Thread.currentThread().interrupt();
 
         // When
-        boolean result = builder.hasEnoughLetters(word, availableLetters);
+        Optional<List<String>> result;
+        try {
+            result = builder.buildParallel(LetterCounts.of("aabb"), pool);
+        } finally {
+            Thread.interrupted();
+            pool.shutdown();
+        }
 
         // Then
-        assertFalse(result);
+        assertFalse(result.isPresent());
+        assertTrue(builder.wasStopped());
     }
 
     @Test
-    @DisplayName("Given word cannot be formed due to missing character, when checking hasEnoughLetters, then return false")
-    void givenWordCannotBeFormedDueToMissingCharacter_whenCheckingHasEnoughLetters_thenReturnFalse() {
-        // Given
-        builder = new WordSquareBuilder(3, validWords);
-        String word = "test";
-        Map<Character, Integer> availableLetters = Map.of(
-                't', 2,
-                'e', 1
-                // Missing 's'
-        );
+    @DisplayName("Given a caller interrupted mid-search, when building in parallel, then stop the remaining subtrees")
+    void givenCallerInterruptedMidSearch_whenBuildingInParallel_thenStopRemainingSubtrees() throws InterruptedException {
+        // Given: 380 first rows, none completing a square with each letter once
+        Set<String> words = new HashSet<>();
+        for (char first = 'a'; first <= 't'; first++) {
+            for (char second = 'a'; second <= 't'; second++) {
+                if (first != second) {
+                    words.add("" + first + second);
+                }
+            }
+        }
+        builder = new WordSquareBuilder(2, words);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger visited = new AtomicInteger();
+        // Each first row takes a few milliseconds, so the whole search takes about a second
+        builder.setSearchListener(new SearchListener() {
+            @Override
+            public void onNodeVisited(int depth) {
+                visited.incrementAndGet();
+                started.countDown();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+        });
+        ForkJoinPool pool = new ForkJoinPool(2);
+        AtomicReference<Optional<List<String>>> result = new AtomicReference<>();
+        Thread caller = new Thread(() -> result.set(builder.buildParallel(LetterCounts.of("abcdefghijklmnopqrst"), pool)));
 
         // When
-        boolean result = builder.hasEnoughLetters(word, availableLetters);
+        caller.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(5_000);
+        pool.shutdown();
 
         // Then
-        assertFalse(result);
+        assertFalse(caller.isAlive());
+        assertEquals(Optional.empty(), result.get());
+        assertTrue(builder.wasStopped());
+        assertTrue(visited.get() < words.size() / 2, "visited " + visited.get());
     }
 
     @Test
-    @DisplayName("Given partial column and candidate word, when building partial column, then return correct string")
-    void givenPartialColumnAndCandidateWord_whenBuildingPartialColumn_thenReturnCorrectString() {
+    @DisplayName("Given no solution exists, when building in parallel, then return empty optional")
+    void givenNoSolutionExists_whenBuildingInParallel_thenReturnEmptyOptional() {
         // Given
-        validWords = Set.of("one", "two", "three");
-        builder = new WordSquareBuilder(3, validWords);
-        List<String> currentSquare = Arrays.asList("one", "two");
-        String candidateWord = "tea";
-        int row = 2; // Third row
-        int col = 1; // Second column
+        builder = new WordSquareBuilder(2, Set.of("ab", "cd"));
 
         // When
-        String partialColumn = builder.buildPartialColumn(currentSquare, candidateWord, row, col);
+        Optional<List<String>> result = builder.buildParallel(LetterCounts.of("abcd"), ForkJoinPool.commonPool());
 
         // Then
-        // Column 1: from row0: 'n' (from "one"), from row1: 'w' (from "two"), from current: 'e' (from "tea")
-        assertEquals("nwe", partialColumn);
+        assertFalse(result.isPresent());
     }
 
     @Test
-    @DisplayName("Given letters are consumed, when calling consumeLetters, then return updated frequency map")
-    void givenLettersAreConsumed_whenCallingConsumeLetters_thenReturnUpdatedFrequencyMap() {
+    @DisplayName("Given multiple possible solutions, when streaming squares, then yield every square in order")
+    void givenMultiplePossibleSolutions_whenStreamingSquares_thenYieldEverySquareInOrder() {
         // Given
-        builder = new WordSquareBuilder(3, validWords);
-        String word = "aabbc";
-        Map<Character, Integer> availableLetters = new HashMap<>();
-        availableLetters.put('a', 3);
-        availableLetters.put('b', 2);
-        availableLetters.put('c', 1);
-        availableLetters.put('d', 1);
+        builder = new WordSquareBuilder(2, Set.of("ab", "ba", "aa", "bb"));
 
         // When
-        Map<Character, Integer> result = builder.consumeLetters(word, availableLetters);
+        List<List<String>> squares = builder.stream(LetterCounts.of("aabb")).collect(Collectors.toList());
 
         // Then
-        assertEquals(1, result.get('a')); // 3 - 2 = 1
-        assertFalse(result.containsKey('b'));
-        assertFalse(result.containsKey('c')); // 1 - 1 = 0 (removed)
-        assertEquals(1, result.get('d')); // unchanged
+        assertEquals(List.of(List.of("ab", "ba"), List.of("ba", "ab")), squares);
     }
 
     @Test
-    @DisplayName("Given valid 3x3 word square scenario, when building square, then return correct solution")
-    void givenValid3x3WordSquareScenario_whenBuildingSquare_thenReturnCorrectSolution() {
+    @DisplayName("Given a solution limit, when iterating solutions, then stop at the limit or when the callback cancels")
+    void givenSolutionLimit_whenIteratingSolutions_thenStopAtLimitOrCancellation() {
         // Given
-        validWords = Set.of("cat", "are", "tea", "art", "ear", "rat", "tar");
-        builder = new WordSquareBuilder(3, validWords);
-        Map<Character, Integer> letters = new HashMap<>();
-        letters.put('c', 2);
-        letters.put('a', 3);
-        letters.put('t', 2);
-        letters.put('r', 2);
-        letters.put('e', 3);
+        builder = new WordSquareBuilder(2, Set.of("ab", "ba", "aa", "bb"));
+        LetterCounts letters = LetterCounts.of("aabb");
+        List<List<String>> seen = new ArrayList<>();
+
+        // When & Then
+        assertEquals(1, builder.forEachSolution(letters, 1, seen::add));
+        assertEquals(List.of(List.of("ab", "ba")), seen);
+        assertEquals(1, builder.forEachSolution(letters, 10, square -> false));
+        assertEquals(2, builder.forEachSolution(letters, 10, square -> true));
+        assertThrows(IllegalArgumentException.class, () -> builder.forEachSolution(letters, 0, square -> true));
+    }
+
+    @Test
+    @DisplayName("Given scored words, when building ranked squares, then return the best squares of the full enumeration")
+    void givenScoredWords_whenBuildingRanked_thenReturnBestSquaresOfFullEnumeration() {
+        // Given
+        PrefixIndex index = new PrefixIndex(3, Set.of("bit", "ice", "ten", "tie", "eel", "net", "ate", "tea", "eat", "tin", "ant", "tan"));
+        Map<String, Float> scoresByWord = new HashMap<>();
+        index.wordsWithPrefix("").forEach(word -> scoresByWord.put(word, (float) (word.hashCode() % 97)));
+        WordScores scores = new WordScores(index, scoresByWord);
+        builder = new WordSquareBuilder(3, index);
+        LetterCounts letters = LetterCounts.of("aabceeeiilnnnttttt");
+        List<Double> enumerated = builder.stream(letters)
+                .map(square -> square.stream().mapToDouble(scoresByWord::get).sum())
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
 
         // When
-        Optional<List<String>> result = builder.build(letters);
+        List<RankedSquare> ranked = builder.buildRanked(letters, scores, 3);
 
         // Then
-        assertTrue(result.isPresent());
-        List<String> square = result.get();
-        assertEquals(3, square.size());
-
-        // Verify word square property
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                assertEquals(square.get(i).charAt(j), square.get(j).charAt(i),
-                        String.format("Position [%d][%d] should match [%d][%d]", i, j, j, i));
-            }
+        assertTrue(enumerated.size() > 3);
+        assertEquals(enumerated.subList(0, 3), ranked.stream().map(RankedSquare::score).collect(Collectors.toList()));
+        for (RankedSquare square : ranked) {
+            assertEquals(square.score(), square.square().stream().mapToDouble(scoresByWord::get).sum());
         }
+        assertThrows(IllegalArgumentException.class, () -> builder.buildRanked(letters, scores, 0));
     }
 
     @Test
-    @DisplayName("Given square maintains property, when checking maintainsSquareProperty, then return true")
-    void givenSquareMaintainsProperty_whenCheckingMaintainsSquareProperty_thenReturnTrue() {
+    @DisplayName("Given a counting listener, when streaming squares, then count nodes, backtracks and solutions")
+    void givenCountingListener_whenStreamingSquares_thenCountSearchEvents() {
         // Given
-        validWords = Set.of("to", "on", "no", "so", "at", "he");
-        builder = new WordSquareBuilder(2, validWords);
-        List<String> currentSquare = Collections.singletonList("to");
-        String candidateWord = "on";
-        int row = 1;
+        builder = new WordSquareBuilder(2, Set.of("ab", "ba", "aa", "bb"));
+        CountingSearchListener counters = new CountingSearchListener();
+        builder.setSearchListener(counters);
 
         // When
-        boolean result = builder.maintainsSquareProperty(2, currentSquare, candidateWord, row);
+        long squares = builder.stream(LetterCounts.of("aabb")).count();
 
-        // Then
-        assertTrue(result);
+        // Then: all four first rows are placed, but "aa" and "bb" leave no letters for row 2
+        assertEquals(2, squares);
+        assertEquals(2, counters.getSolutions());
+        assertEquals(6, counters.getNodesVisited());
+        assertEquals(4, counters.getBacktracks());
     }
 
-
-
     @Test
-    @DisplayName("Given multiple possible solutions, when building square, then return first valid solution")
-    void givenMultiplePossibleSolutions_whenBuildingSquare_thenReturnFirstValidSolution() {
+    @DisplayName("Given a sampling listener, when searching, then forward every nth event and every solution")
+    void givenSamplingListener_whenSearching_thenForwardEveryNthEventAndEverySolution() {
         // Given
-        validWords = Set.of("ab", "ba", "aa", "bb");
-        builder = new WordSquareBuilder(2, validWords);
-        Map<Character, Integer> letters = Map.of('a', 2, 'b', 2);
+        builder = new WordSquareBuilder(2, Set.of("ab", "ba", "aa", "bb"));
+        CountingSearchListener counters = new CountingSearchListener();
+        builder.setSearchListener(new SamplingSearchListener(counters, 2));
 
         // When
-        Optional<List<String>> result = builder.build(letters);
+        builder.stream(LetterCounts.of("aabb")).count();
 
         // Then
-        assertTrue(result.isPresent());
-        List<String> square = result.get();
-        assertEquals(2, square.size());
-
-        // Verify it's a valid word square
-        assertEquals(square.get(0).charAt(0), square.get(0).charAt(0));
-        assertEquals(square.get(0).charAt(1), square.get(1).charAt(0));
-        assertEquals(square.get(1).charAt(0), square.get(0).charAt(1));
-        assertEquals(square.get(1).charAt(1), square.get(1).charAt(1));
+        assertEquals(3, counters.getNodesVisited());
+        assertEquals(2, counters.getBacktracks());
+        assertEquals(2, counters.getSolutions());
+        assertThrows(IllegalArgumentException.class, () -> new SamplingSearchListener(counters, 0));
     }
 
     @Test
-    @DisplayName("Given no solution exists, when building square, then return empty optional")
-    void givenNoSolutionExists_whenBuildingSquare_thenReturnEmptyOptional() {
+    @DisplayName("Given an index over a derived alphabet, when building from a-z letters, then count them in the index alphabet")
+    void givenDerivedAlphabetIndex_whenBuildingFromLatinLetters_thenConvertLetters() {
         // Given
-        validWords = Set.of("abc", "def", "ghi"); // No possible word square
-        builder = new WordSquareBuilder(2, validWords);
-        Map<Character, Integer> letters = Map.of('x', 4, 'y', 4, 'z', 4);
+        PrefixIndex index = new PrefixIndex(Alphabet.of("abnot"), 2, List.of("to", "on", "ab", "ba"));
+        builder = new WordSquareBuilder(2, index);
 
         // When
-        Optional<List<String>> result = builder.build(letters);
+        Optional<List<String>> square = builder.build(LetterCounts.of("toon"));
 
         // Then
-        assertFalse(result.isPresent());
+        assertEquals(Optional.of(List.of("to", "on")), square);
+        assertEquals(square, builder.buildParallel(LetterCounts.of("toon"), ForkJoinPool.commonPool()));
+        assertEquals(1, builder.stream(LetterCounts.of("toon")).count());
     }
-}
\ No newline at end of file
+}
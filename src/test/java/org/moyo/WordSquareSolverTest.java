@@ -3,8 +3,16 @@ package org.moyo;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 class WordSquareSolverTest {
 
@@ -67,4 +75,273 @@ class WordSquareSolverTest {
         Assertions.assertEquals(List.of("bravado","renamed","analogy","valuers","amoebas","degrade","odyssey"), resolver.solveWordSquare(7, "aaaaaaaaabbeeeeeeedddddggmmlloooonnssssrrrruvvyyy"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenBaseCase3_whenSolveWordSquareParallel_thenReturnSameSquareAsSequential() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+        String sequence = "aaaaaaaaabbeeeeeeedddddggmmlloooonnssssrrrruvvyyy";
+
+        Assertions.assertEquals(resolver.solveWordSquare(7, sequence),
+                resolver.solveWordSquareParallel(7, sequence, ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void givenMostConstrainedStrategy_whenSolveBaseCase3_thenReturnValidSquareAlsoInParallel() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+        resolver.setSearchStrategy(SearchStrategy.MOST_CONSTRAINED);
+        String sequence = "aaaaaaaaabbeeeeeeedddddggmmlloooonnssssrrrruvvyyy";
+
+        List<String> square = resolver.solveWordSquare(7, sequence);
+
+        Assertions.assertEquals(List.of("bravado","renamed","analogy","valuers","amoebas","degrade","odyssey"), square);
+        Assertions.assertEquals(square, resolver.solveWordSquareParallel(7, sequence, ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    public void givenFullDictionary_whenSearchingMostConstrainedSlotFirst_thenExpandFarFewerNodes() {
+        DictionaryLoader fullLoader = new DictionaryLoader();
+        fullLoader.loadFromTextFile("src/main/resources/words.txt");
+        // Neither has a square, so every strategy searches its whole tree
+        List<String[]> unsolvable = List.of(
+                new String[]{"6", "aaaaabbeeeeeeeeddggmmlloonnssrrrtttu"},
+                new String[]{"7", "aaaaaaaaabbeeeeeeedddddggmmlloooonnssssrrrruvvyyz"});
+
+        for (String[] puzzle : unsolvable) {
+            long[] nodes = new long[SearchStrategy.values().length];
+            for (SearchStrategy strategy : SearchStrategy.values()) {
+                WordSquareSolver resolver = new WordSquareSolver(fullLoader);
+                resolver.setSearchStrategy(strategy);
+                SolveResult result = resolver.solve(Integer.parseInt(puzzle[0]), puzzle[1]);
+                Assertions.assertEquals(SolveStatus.NO_SOLUTION, result.status());
+                nodes[strategy.ordinal()] = result.metrics().getNodesExpanded();
+            }
+
+            long constrained = nodes[SearchStrategy.MOST_CONSTRAINED.ordinal()];
+            Assertions.assertTrue(constrained * 10 < nodes[SearchStrategy.ROWS.ordinal()], Arrays.toString(nodes));
+            Assertions.assertTrue(constrained < nodes[SearchStrategy.SYMMETRIC_PAIRS.ordinal()], Arrays.toString(nodes));
+        }
+    }
+
+    @Test
+    public void givenBaseCase1_whenSolveAllWordSquares_thenReturnEverySquareUpToLimit() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        Assertions.assertEquals(List.of(List.of("moan","once","acme","need")), resolver.solveAllWordSquares(4, "aaccdeeeemmnnnoo", 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> resolver.solveAllWordSquares(4, "aaccdeeeemmnnnoo", 0));
+    }
+
+    @Test
+    public void givenBaseCase1_whenSolveAll_thenReturnSquaresWithStatusAndMetrics() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        EnumerationResult result = resolver.solveAll(4, "aaccdeeeemmnnnoo", 5);
+
+        Assertions.assertEquals(SolveStatus.SOLVED, result.status());
+        Assertions.assertEquals(resolver.solveAllWordSquares(4, "aaccdeeeemmnnnoo", 5), result.squares());
+        Assertions.assertEquals(List.of("moan","once","acme","need"), result.squares().get(0));
+        Assertions.assertTrue(result.metrics().getNodesExpanded() > 0);
+    }
+
+    @Test
+    public void givenExhaustedTimeBudgetOrCancelledToken_whenSolveAll_thenReportWhichLimitStoppedIt() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        EnumerationResult timedOut = resolver.solveAll(4, "aaccdeeeemmnnnoo", 5, Duration.ZERO, CancellationToken.NONE);
+        EnumerationResult cancelled = resolver.solveAll(4, "aaccdeeeemmnnnoo", 5, null, token);
+
+        Assertions.assertEquals(SolveStatus.TIMED_OUT, timedOut.status());
+        Assertions.assertEquals(SolveStatus.CANCELLED, cancelled.status());
+        Assertions.assertTrue(cancelled.squares().isEmpty());
+    }
+
+    @Test
+    public void givenBaseCase1_whenStreamWordSquares_thenFirstSquareMatchesSolve() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        Assertions.assertEquals(resolver.solveWordSquare(4, "aaccdeeeemmnnnoo"), resolver.streamWordSquares(4, "aaccdeeeemmnnnoo").findFirst().orElseThrow());
+        Assertions.assertEquals(0, resolver.streamWordSquares(0, "abcd").count());
+    }
+
+    @Test
+    public void givenBaseCase1_whenSolve_thenReturnSquareWithMetrics() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        SolveResult result = resolver.solve(4, "aaccdeeeemmnnnoo");
+        SolverMetrics metrics = result.metrics();
+
+        Assertions.assertTrue(result.isSolved());
+        Assertions.assertEquals(List.of("moan","once","acme","need"), result.square());
+        Assertions.assertEquals(4, metrics.getCandidateWords());
+        Assertions.assertEquals(4, metrics.getNodesExpandedPerDepth().length);
+        Assertions.assertEquals(1, metrics.getNodesExpandedPerDepth()[3]);
+        Assertions.assertEquals(metrics.getNodesExpanded(), Arrays.stream(metrics.getNodesExpandedPerDepth()).sum());
+        Assertions.assertTrue(metrics.getPruneCount(SolverMetrics.Prune.COLUMN) > 0);
+        Assertions.assertTrue(metrics.getPruneRate(SolverMetrics.Prune.COLUMN) > 0);
+        Assertions.assertTrue(metrics.getWallNanos(SolverMetrics.Phase.SEARCH) > 0);
+        Assertions.assertEquals(1, resolver.getStatistics().getSolvedCount());
+    }
+
+    @Test
+    public void givenParallelSolve_whenSolve_thenMetricsIncludeEveryPoolThread() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        SolveResult result = resolver.solveParallel(4, "aaccdeeeemmnnnoo", ForkJoinPool.commonPool());
+
+        Assertions.assertEquals(List.of("moan","once","acme","need"), result.square());
+        Assertions.assertTrue(result.metrics().getNodesExpanded() >= 4);
+    }
+
+    @Test
+    public void givenCache_whenSolvingAnAnagram_thenAnswerFromCache() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+        SolveCache cache = new SolveCache(8);
+        resolver.setCache(cache);
+
+        SolveResult first = resolver.solve(4, "aaccdeeeemmnnnoo");
+        SolveResult anagram = resolver.solve(4, "nnnoommeeeeccdaa");
+
+        Assertions.assertFalse(first.metrics().isCacheHit());
+        Assertions.assertTrue(anagram.metrics().isCacheHit());
+        Assertions.assertEquals(first.square(), anagram.square());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(1, resolver.getStatistics().getCacheHitCount());
+    }
+
+    @Test
+    public void givenCachedSolve_whenDictionaryIsReloaded_thenSolveAgain() {
+        DictionaryLoader reloadable = new DictionaryLoader();
+        reloadable.loadFromTextFile("src/test/resources/TestWord.txt");
+        WordSquareSolver resolver = new WordSquareSolver(reloadable);
+        SolveCache cache = new SolveCache(8);
+        resolver.setCache(cache);
+        resolver.solve(4, "aaccdeeeemmnnnoo");
+
+        reloadable.loadFromTextFile("src/test/resources/TestWord.txt");
+        SolveResult result = resolver.solve(4, "aaccdeeeemmnnnoo");
+
+        Assertions.assertFalse(result.metrics().isCacheHit());
+        Assertions.assertEquals(List.of("moan","once","acme","need"), result.square());
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void givenSolutionStore_whenSolvingAfterRestart_thenAnswerFromStore(@TempDir Path tempDir) throws IOException {
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            WordSquareSolver resolver = new WordSquareSolver(loader);
+            resolver.setSolutionStore(store);
+            Assertions.assertFalse(resolver.solve(4, "aaccdeeeemmnnnoo").metrics().isStoreHit());
+        }
+
+        try (SolutionStore store = SolutionStore.open(tempDir)) {
+            WordSquareSolver resolver = new WordSquareSolver(loader);
+            resolver.setSolutionStore(store);
+            SolveResult result = resolver.solve(4, "nnnoommeeeeccdaa");
+
+            Assertions.assertTrue(result.metrics().isStoreHit());
+            Assertions.assertEquals(List.of("moan","once","acme","need"), result.square());
+            Assertions.assertEquals(1, resolver.getStatistics().getStoreHitCount());
+        }
+    }
+
+    @Test
+    public void givenHebrewDictionary_whenSolve_thenReturnHebrewSquare(@TempDir Path tempDir) throws IOException {
+        Path wordList = Files.writeString(tempDir.resolve("hebrew.txt"), "אב\nבא\n", StandardCharsets.UTF_8);
+        DictionaryLoader hebrewLoader = new DictionaryLoader();
+        hebrewLoader.loadFromTextFile(wordList.toString());
+        WordSquareSolver resolver = new WordSquareSolver(hebrewLoader);
+
+        Assertions.assertEquals(List.of("אב","בא"), resolver.solve(2, "אאבב").square());
+    }
+
+    @Test
+    public void givenSurplusLetterOutsideDictionaryAlphabet_whenSolve_thenIgnoreIt() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        SolveResult result = resolver.solve(4, "aaccdeeeemmnnnooq");
+
+        Assertions.assertEquals(SolveStatus.SOLVED, result.status());
+        Assertions.assertEquals(List.of("moan","once","acme","need"), result.square());
+    }
+
+    @Test
+    public void givenTooManyOddLetterCounts_whenSolve_thenRejectWithoutSearching() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        SolveResult result = resolver.solve(4, "abcdefghllmmnnoo");
+
+        Assertions.assertFalse(result.isSolved());
+        Assertions.assertNotNull(result.metrics().getInfeasibleReason());
+        Assertions.assertEquals(0, result.metrics().getCandidateWords());
+        Assertions.assertEquals(0, result.metrics().getNodesExpanded());
+    }
+
+    @Test
+    public void givenCancelledToken_whenSolve_thenReturnCancelledWithoutCaching() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+        SolveCache cache = new SolveCache();
+        resolver.setCache(cache);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        SolveResult result = resolver.solve(4, "aaccdeeeemmnnnoo", token);
+
+        Assertions.assertEquals(SolveStatus.CANCELLED, result.status());
+        Assertions.assertFalse(result.isSolved());
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(1, resolver.getStatistics().getCancelledCount());
+    }
+
+    @Test
+    public void givenExhaustedTimeBudget_whenSolve_thenReturnTimedOut() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        SolveResult result = resolver.solve(7, "aaaaaaaaabbeeeeeeedddddggmmlloooonnssssrrrruvvyyy", Duration.ZERO);
+
+        Assertions.assertEquals(SolveStatus.TIMED_OUT, result.status());
+        Assertions.assertEquals(1, resolver.getStatistics().getTimedOutCount());
+    }
+
+    @Test
+    public void givenAmpleTimeBudget_whenSolve_thenReturnSolvedSquare() {
+        WordSquareSolver resolver = new WordSquareSolver(loader);
+
+        SolveResult result = resolver.solve(4, "aaccdeeeemmnnnoo", Duration.ofMinutes(1), new CancellationToken());
+
+        Assertions.assertEquals(SolveStatus.SOLVED, result.status());
+        Assertions.assertEquals(List.of("moan","once","acme","need"), result.square());
+        Assertions.assertEquals(SolveStatus.NO_SOLUTION, resolver.solve(4, "aaaaaaaaaaaaaaaa", Duration.ofMinutes(1)).status());
+    }
+
+    @Test
+    public void givenScoredDictionary_whenSolveRanked_thenReturnHighestScoringSquaresFirst(@TempDir Path tempDir) throws IOException {
+        Path wordList = Files.writeString(tempDir.resolve("scored.txt"), "ab 1\nbc 1\ncb 5\nba 5\n", StandardCharsets.UTF_8);
+        DictionaryLoader scoredLoader = new DictionaryLoader();
+        scoredLoader.loadFromTextFile(wordList.toString());
+        WordSquareSolver resolver = new WordSquareSolver(scoredLoader);
+
+        RankedResult best = resolver.solveRanked(2, "abbc", 1);
+        RankedResult all = resolver.solveRanked(2, "abbc", 5);
+
+        Assertions.assertEquals(List.of("ab","bc"), resolver.solve(2, "abbc").square());
+        Assertions.assertEquals(SolveStatus.SOLVED, best.status());
+        Assertions.assertEquals(List.of(new RankedSquare(List.of("cb","ba"), 10)), best.squares());
+        Assertions.assertEquals(List.of(new RankedSquare(List.of("cb","ba"), 10), new RankedSquare(List.of("ab","bc"), 2)), all.squares());
+        Assertions.assertEquals(SolveStatus.NO_SOLUTION, resolver.solveRanked(2, "aacc", 1).status());
+    }
+
+    @Test
+    public void givenGreekDictionary_whenSolveWithUpperCaseLetters_thenReturnGreekSquare(@TempDir Path tempDir) throws IOException {
+        Path wordList = Files.writeString(tempDir.resolve("greek.txt"), "εσυ\nσαν\nυνα\nεμα\n", StandardCharsets.UTF_8);
+        DictionaryLoader greekLoader = new DictionaryLoader();
+        greekLoader.loadFromTextFile(wordList.toString());
+        WordSquareSolver resolver = new WordSquareSolver(greekLoader);
+
+        SolveResult result = resolver.solve(3, "ΕΣΥΣΑΝΥΝΑ");
+
+        Assertions.assertEquals(Alphabet.of("εσυανμ"), greekLoader.snapshot().getAlphabet());
+        Assertions.assertEquals(List.of("εσυ","σαν","υνα"), result.square());
+    }
+
+}